@@ -0,0 +1,17 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.app.IntentService;
+import android.content.Intent;
+
+public class AnalysisService extends IntentService { //runs GameAnalyzer off the main thread; the process is kept while it works
+
+    public AnalysisService() {
+        super("AnalysisService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        GameAnalyzer analyzer = new GameAnalyzer(this);
+        if(analyzer.canRun()) analyzer.run();
+    }
+}
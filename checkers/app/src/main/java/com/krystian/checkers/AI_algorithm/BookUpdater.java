@@ -0,0 +1,77 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import com.krystian.checkers.database.GameDatabaseHelper;
+import com.krystian.checkers.database.GameJournal;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.book.OpeningBook;
+import com.krystian.checkers.engine.book.OpeningBookBuilder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class BookUpdater implements Runnable { //merges games not yet in the opening book - run it off the main thread
+
+    public final static int BOOK_PLIES = 16;
+    public final static int BOOK_BATCH = 10; //new games merged at once - the whole file is rewritten each time
+
+    private final Context context;
+
+    public BookUpdater(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void run() {
+        try {
+            update();
+        } catch(IOException | SQLiteException e) {
+            Log.e("Opening book", "Can't update opening book", e); //next finished game will try again
+        }
+    }
+
+    public synchronized int update() throws IOException { //games merged; none until BOOK_BATCH of them are waiting
+        File file = new File(context.getFilesDir(), CpuPlayer.BOOK_FILE);
+        OpeningBook book = file.isFile() ? new OpeningBook(file) : null;
+        String where = "_id > ? AND STATUS = " + GameJournal.FINISHED + " AND IMPORTED = 0"; //the book learns from the player's games only
+        String[] stamp = {Long.toString(book != null ? book.getStamp() : 0)}; //last GAMES row already in there
+        SQLiteDatabase db = GameDatabaseHelper.getInstance(context).getReadableDatabase();
+        if(DatabaseUtils.queryNumEntries(db, "GAMES", where, stamp) < BOOK_BATCH) return 0;
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(BOOK_PLIES);
+        if(book != null) builder.load(book);
+        Cursor cursor = db.query("GAMES", new String[]{"_id", "RECORD", "WHITE", "BROWN", "RESULT"}, where, stamp,
+                null, null, "_id");
+        int merged = 0;
+        long[] moves = new long[BOOK_PLIES];
+        try {
+            while(cursor.moveToNext()) { //one row at a time - nothing else of the table is in memory
+                builder.setStamp(cursor.getLong(0));
+                GameRecord record = GameDatabaseHelper.readRecord(cursor);
+                if(!record.getStart().sameBoard(Position.initial())) continue; //set up from a FEN - book moves are from the start
+                int count = Math.min(record.getMoveCount(), moves.length);
+                for(int ply=0; ply<count; ply++) moves[ply] = record.getMove(ply);
+                int result = record.getResult() != GameRecord.UNFINISHED ? record.getResult()
+                        : result(record.positionAt(record.getMoveCount())); //games from before the result was stored
+                if(builder.addGame(moves, count, result)) merged++;
+            }
+        } finally {
+            cursor.close();
+        }
+        if(merged > 0) builder.write(file, 1); //every record is kept - CpuPlayer decides how many games it trusts
+        return merged;
+    }
+
+    private static int result(Position last) { //old records have no result - side without pawns lost, otherwise a draw
+        if(last.getWhite() == 0) return OpeningBookBuilder.BROWN_WON;
+        if(last.getBrown() == 0) return OpeningBookBuilder.WHITE_WON;
+        return OpeningBookBuilder.DRAW;
+    }
+}
@@ -0,0 +1,298 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.krystian.checkers.BuildConfig;
+import com.krystian.checkers.engine.Board;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.book.OpeningBook;
+import com.krystian.checkers.engine.search.Difficulty;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+import com.krystian.checkers.engine.search.TranspositionTable;
+import com.krystian.checkers.engine.tablebase.TablebaseProber;
+import com.krystian.checkers.engine.time.GameClock;
+import com.krystian.checkers.engine.time.TimeManager;
+import com.krystian.checkers.gameMechanics.Pawn;
+import com.krystian.checkers.gameMechanics.PlayableTile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class CpuPlayer { //engine search for brown on a worker thread; GameTree still finds the nodes that GameActivity knows how to play
+
+    public final static String DIFFICULTY_KEY = "difficulty";
+    public final static Difficulty DEFAULT_DIFFICULTY = Difficulty.MEDIUM; //depth 6 - as the cpu played before levels
+    public final static String TABLEBASE_DIRECTORY = "tablebases";
+    public final static String BOOK_FILE = "book.bin";
+    public final static int BOOK_MIN_GAMES = 2; //a move from a single own game is not trusted yet
+    public final static String SEARCH_LOG_FILE = "search.log";
+    public final static long PONDER_NODES = 2000000; //a few seconds of work - replies to the likely moves are in the table by then
+
+    public interface MoveCallback { //on the main thread
+        void onMove(GameNode node); //null if the engine move isn't among the nodes
+    }
+
+    private final Search search;
+    private final Search ponderSearch; //same table - never runs together with search
+    private Thread ponder;
+    private final MoveGenerator generator = new MoveGenerator(); //on the worker
+    private final MoveGenerator forcedGenerator = new MoveGenerator(); //on the main thread - findForcedNode() takes no lock
+    private final long[] forced = new long[MoveGenerator.MAX_MOVES];
+    private final Random random = new Random();
+    private final Difficulty difficulty;
+    private final SearchLimits limits;
+    private final TimeManager timeManager = new TimeManager();
+    private GameClock clock; //null in untimed games
+    private final long[] followed = new long[MoveGenerator.MAX_MOVES];
+    private OpeningBook book;
+    private Position game = Position.initial(); //live game with its history - search needs it for repetitions and the draw counter; worker only
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(); //assets, then one search after another
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private volatile int request; //changed on the main thread; answers to older requests are dropped
+    private volatile boolean paused; //screen not in front - no pondering
+
+    public CpuPlayer(final Context context) {
+        difficulty = getDifficulty(context);
+        DeviceCalibration calibration = new DeviceCalibration(context); //defaults until the first calibration is done
+        search = new Search(new TranspositionTable(calibration.getTableSizeLog2()));
+        ponderSearch = new Search(search.getTable());
+        limits = calibration.fit(difficulty.getLimits());
+        search.setListener(new SearchLog(BuildConfig.DEBUG, //file too in debug builds - it can be pulled from the device
+                BuildConfig.DEBUG ? new File(context.getFilesDir(), SEARCH_LOG_FILE) : null));
+        worker.execute(new Runnable() { //before the first search - copying is long at first launch
+            public void run() {
+                openFiles(context.getApplicationContext());
+            }
+        });
+    }
+
+    private void openFiles(Context context) {
+        File directory = new File(context.getFilesDir(), TABLEBASE_DIRECTORY);
+        try {
+            copyTablebases(context.getAssets(), directory);
+            TablebaseProber tablebases = new TablebaseProber(directory);
+            search.setTablebases(tablebases);
+            ponderSearch.setTablebases(tablebases);
+        } catch(IOException e) {
+            Log.e("Tablebases", "Can't open tablebases", e); //search works without them
+        }
+        File bookFile = new File(context.getFilesDir(), BOOK_FILE);
+        try {
+            if(copyAsset(context.getAssets(), BOOK_FILE, bookFile)) book = new OpeningBook(bookFile);
+        } catch(IOException e) {
+            Log.e("Opening book", "Can't open opening book", e); //cpu just searches from the first move
+        }
+    }
+
+    public Search getSearch() { return search; }
+    public void setClock(GameClock clock) { this.clock = clock; }
+
+    public void setGame(GameRecord record) { //after a takeback, redo or resume; the table is kept - positions of the game are still in it
+        final Position position = record.positionAt(record.getMoveCount()); //with history - repetitions and the draw counter stay right
+        stopPondering();
+        worker.execute(new Runnable() { //in order with the searches
+            public void run() {
+                replaceGame(position);
+            }
+        });
+    }
+
+    private synchronized void replaceGame(Position position) {
+        joinPondering();
+        game = position;
+    }
+
+    public void cancel() { //screen is gone - a search in progress ends and its move isn't played
+        request++;
+        search.stop();
+        stopPondering();
+    }
+
+    public void pause() { //onPause() - a search for a move the player hasn't made yet isn't worth running in background
+        paused = true;
+        stopPondering();
+    }
+
+    public void resume() { //pondering starts again after the next cpu move
+        paused = false;
+    }
+
+    public void close() { //after cancel(), when the game is left for good
+        worker.shutdown();
+    }
+
+    public static Difficulty getDifficulty(Context context) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        return Difficulty.fromName(preferences.getString(DIFFICULTY_KEY, null), DEFAULT_DIFFICULTY);
+    }
+
+    public static void setDifficulty(Context context, Difficulty difficulty) { //used from the next game on
+        PreferenceManager.getDefaultSharedPreferences(context).edit().putString(DIFFICULTY_KEY, difficulty.name()).apply();
+    }
+
+    public GameNode findForcedNode(PlayableTile[] board, ArrayList<Pawn> brownPawn) { //null unless brown has one legal move
+        final int[] tiles = toTiles(board);
+        Position position = Position.fromTiles(tiles, false); //own position - the worker may be searching the game
+        if(forcedGenerator.generate(position, forced) != 1) return null;
+        final long move = forced[0];
+        int from = Board.square(Move.from(move));
+        ArrayList<Integer> moveList = new ArrayList<>();
+        for(int square : forcedGenerator.path(position, move)) moveList.add(square);
+        for(Pawn pawn : brownPawn) {
+            if(pawn.getPosition() != from) continue;
+            worker.execute(new Runnable() { //the live game gets the move on the worker, before the next search
+                public void run() {
+                    playForced(tiles, move);
+                }
+            });
+            return new GameNode(pawn, moveList, Move.isCapture(move));
+        }
+        return null;
+    }
+
+    private synchronized void playForced(int[] tiles, long move) { //on the worker
+        joinPondering();
+        follow(tiles, false).makeMove(move);
+        startPondering();
+    }
+
+    public void chooseNode(PlayableTile[] board, final GameTree tree, final MoveCallback callback) { //the main thread stays free
+        final int[] tiles = toTiles(board); //the board is only read here - it changes after the move
+        final long remaining = clock == null ? 0 : clock.getRemaining(false, SystemClock.elapsedRealtime());
+        final int asked = ++request;
+        worker.execute(new Runnable() {
+            public void run() {
+                final GameNode node = choose(tiles, tree, remaining, asked);
+                handler.post(new Runnable() {
+                    public void run() {
+                        if(asked == request) callback.onMove(node);
+                    }
+                });
+            }
+        });
+    }
+
+    private synchronized GameNode choose(int[] tiles, GameTree tree, long remaining, int asked) { //on the worker
+        joinPondering();
+        if(asked != request) return null; //cancelled before it started
+        search.clearStop();
+        Position position = follow(tiles, false);
+        long move = book != null && difficulty != Difficulty.BEGINNER //beginner shouldn't know openings
+                ? book.choose(position, random, BOOK_MIN_GAMES) : Move.NONE; //no search needed in known openings
+        if(move == Move.NONE) {
+            SearchLimits moveLimits = clock == null ? limits : timeManager.allocate(limits,
+                    remaining, clock.getIncrement(), position);
+            move = difficulty.choose(search, position, moveLimits, random);
+        }
+        if(move == Move.NONE) return null;
+
+        int from = Board.square(Move.from(move));
+        int[] path = generator.path(position, move);
+        for(GameNode node : tree.gameNodeList) {
+            if(node.getPawn().getPosition() != from || node.moveList.size() != path.length) continue;
+            boolean same = true;
+            for(int i=0; i<path.length; i++)
+                if(node.moveList.get(i) != path[i]) same = false;
+            if(same) {
+                position.makeMove(move); //game goes on from the cpu move
+                startPondering();
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void startPondering() { //while the player thinks, replies to the cpu move get into the table
+        final Position position = new Position(game); //own copy - the worker goes on with the game
+        ponderSearch.clearStop();
+        if(paused) return; //checked after clearStop() - a pause() from now on stops the thread
+        ponder = new Thread(new Runnable() {
+            public void run() {
+                ponderSearch.findBestMove(position, new SearchLimits().nodes(PONDER_NODES));
+            }
+        });
+        ponder.setPriority(Thread.MIN_PRIORITY); //drawing the cpu move comes first
+        ponder.start();
+    }
+
+    public void stopPondering() { //from the main thread - only a signal; the worker waits for the thread before it searches
+        ponderSearch.stop();
+    }
+
+    private synchronized void joinPondering() { //on the worker, before the game or the table are used
+        if(ponder == null) return;
+        ponderSearch.stop();
+        try {
+            ponder.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponder = null;
+    }
+
+    private static int[] toTiles(PlayableTile[] board) {
+        int[] tiles = new int[board.length];
+        for(int i=0; i<board.length; i++) tiles[i] = board[i].getIsTaken();
+        return tiles;
+    }
+
+    private Position follow(int[] tiles, boolean whiteToMove) { //live game after the player's move; new one if it can't be found
+        Position target = Position.fromTiles(tiles, whiteToMove);
+        if(game.sameBoard(target)) return game;
+        int count = generator.generate(game, followed);
+        for(int i=0; i<count; i++) {
+            game.makeMove(followed[i]);
+            if(game.sameBoard(target)) return game;
+            game.unmakeMove();
+        }
+        game = target; //history is lost - repetitions before this point won't be seen
+        return game;
+    }
+
+    private static void copyTablebases(AssetManager assets, File directory) throws IOException { //once - after that they are mapped from files
+        String[] names = assets.list(TABLEBASE_DIRECTORY);
+        if(names == null || names.length == 0) return;
+        if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create " + directory);
+        for(String name : names) copyAsset(assets, TABLEBASE_DIRECTORY + "/" + name, new File(directory, name));
+    }
+
+    private static boolean copyAsset(AssetManager assets, String name, File file) throws IOException { //false if there's no such asset
+        if(file.isFile()) return true;
+        InputStream in;
+        try {
+            in = assets.open(name);
+        } catch(IOException e) {
+            return false;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temporary);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) > 0) out.write(buffer, 0, read);
+        } finally {
+            in.close();
+            out.close();
+        }
+        if(!temporary.renameTo(file)) throw new IOException("Can't rename " + temporary);
+        return true;
+    }
+}
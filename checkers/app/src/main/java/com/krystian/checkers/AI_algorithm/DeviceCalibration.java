@@ -0,0 +1,112 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.krystian.checkers.BuildConfig;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+import com.krystian.checkers.engine.search.TranspositionTable;
+
+public class DeviceCalibration implements Runnable { //how fast the phone searches and how much memory it gives us; measured once per app version
+
+    public final static String VERSION_KEY = "calibration_version";
+    public final static String NPS_KEY = "calibration_nps";
+    public final static String MEMORY_CLASS_KEY = "calibration_memory_class";
+    public final static long CALIBRATION_NODES = 200000; //about 0.1 - 1 s on phones
+    public final static long DEFAULT_NPS = 300000; //until the first calibration is done
+    public final static int DEFAULT_MEMORY_CLASS = 32; //MB, the smallest heap of API 15 devices
+    public final static long LATENCY_TARGET = 1500; //milliseconds - for levels that have no time limit of their own
+    public final static long REFERENCE_NPS = 1000000; //phone the Difficulty times were chosen on
+    public final static double MIN_SCALE = 0.25; //fast phones stop sooner, slow ones get more time - within these
+    public final static double MAX_SCALE = 2;
+    public final static long ENOUGH_NODES = 3000000; //more doesn't make a cpu move noticeably better
+    public final static int MIN_TABLE_LOG2 = 14;
+    public final static int MAX_TABLE_LOG2 = 20; //20 MB
+    public final static int TABLE_HEAP_SHARE = 8; //at most 1/8 of the heap goes to the table
+
+    private final Context context;
+    private long nps = DEFAULT_NPS;
+    private int memoryClass = DEFAULT_MEMORY_CLASS;
+
+    public DeviceCalibration(Context context) {
+        this.context = context.getApplicationContext();
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this.context);
+        if(isCurrent(preferences)) {
+            nps = preferences.getLong(NPS_KEY, DEFAULT_NPS);
+            memoryClass = preferences.getInt(MEMORY_CLASS_KEY, DEFAULT_MEMORY_CLASS);
+        }
+    }
+
+    public long getNodesPerSecond() { return nps; }
+    public int getMemoryClass() { return memoryClass; }
+
+    public boolean isCurrent() { //false at first launch and after an update
+        return isCurrent(PreferenceManager.getDefaultSharedPreferences(context));
+    }
+
+    private static boolean isCurrent(SharedPreferences preferences) {
+        return preferences.getInt(VERSION_KEY, -1) == BuildConfig.VERSION_CODE;
+    }
+
+    @Override
+    public void run() {
+        calibrate();
+    }
+
+    public synchronized void calibrate() { //off the main thread - it's a real search
+        Search search = new Search(new TranspositionTable(MIN_TABLE_LOG2));
+        search.findBestMove(Position.initial(), new SearchLimits().nodes(CALIBRATION_NODES / 10)); //warm up the JIT
+        long start = System.nanoTime();
+        search.findBestMove(Position.initial(), new SearchLimits().nodes(CALIBRATION_NODES));
+        long nanos = Math.max(1, System.nanoTime() - start);
+        nps = Math.max(1, search.getNodes() * 1000000000L / nanos);
+        memoryClass = ((ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE)).getMemoryClass();
+
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putInt(VERSION_KEY, BuildConfig.VERSION_CODE)
+                .putLong(NPS_KEY, nps)
+                .putInt(MEMORY_CLASS_KEY, memoryClass)
+                .apply();
+        Log.i("Calibration", nps + " nodes/s, memory class " + memoryClass + " MB, table 2^" + getTableSizeLog2()
+                + ", time " + getSoftTime() + "/" + getHardTime() + " ms, level times x" + getTimeScale()
+                + ", threads " + getThreads());
+    }
+
+    public int getTableSizeLog2() { //largest power of two that fits the heap share
+        long bytes = (long) memoryClass * 1024 * 1024 / TABLE_HEAP_SHARE;
+        int log2 = MIN_TABLE_LOG2;
+        while(log2 < MAX_TABLE_LOG2 && (TranspositionTable.bytesPerEntry() << (log2 + 1)) <= bytes) log2++;
+        return log2;
+    }
+
+    public long getHardTime() { //fast phones stop when they have searched enough, slow ones at the latency target
+        return Math.max(100, Math.min(LATENCY_TARGET, ENOUGH_NODES * 1000 / nps));
+    }
+
+    public long getSoftTime() { return getHardTime() / 3; } //a new depth takes about twice all before it
+
+    public double getTimeScale() { //level times are meant for REFERENCE_NPS
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, (double) REFERENCE_NPS / nps));
+    }
+
+    public int getThreads() { //for background work; a move search runs on one thread
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)); //one core is left for the UI
+    }
+
+    public SearchLimits fit(SearchLimits limits) { //level times scaled to this device's speed - levels stay apart
+        if(limits.getHardTime() == 0) { //depth or node levels - only a guard against slow phones
+            limits.hardTime(getHardTime());
+            if(limits.getSoftTime() == 0) limits.softTime(getSoftTime());
+            return limits;
+        }
+        double scale = getTimeScale();
+        limits.hardTime(Math.max(100, Math.round(limits.getHardTime() * scale)));
+        if(limits.getSoftTime() != 0) limits.softTime(Math.max(30, Math.round(limits.getSoftTime() * scale)));
+        return limits;
+    }
+}
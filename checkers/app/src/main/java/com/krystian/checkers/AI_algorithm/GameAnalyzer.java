@@ -0,0 +1,171 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.app.ActivityManager;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.BatteryManager;
+import android.os.Process;
+import android.util.Log;
+
+import com.krystian.checkers.database.GameDatabaseHelper;
+import com.krystian.checkers.database.GameJournal;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+import com.krystian.checkers.engine.search.TranspositionTable;
+import com.krystian.checkers.engine.tablebase.TablebaseProber;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class GameAnalyzer implements Runnable { //searches every ply of stored games into ANALYSIS; stops on battery or with the app in front and goes on from there next time
+
+    public final static long ANALYSIS_NODES = 100000; //same result on every device
+    public final static int MAX_SCORE = 3000; //wins are cut to this - a lost won game isn't a bigger blunder than a lost piece or two
+    public final static int BLUNDER = 150; //score lost by one move, in Evaluator.MAN = 100
+    public final static int TABLE_SIZE_LOG2 = 16; //per worker
+
+    private final Context context;
+    private final ConcurrentLinkedQueue<Long> queue = new ConcurrentLinkedQueue<>();
+    private TablebaseProber tablebases;
+
+    public GameAnalyzer(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void run() { //blocks until every game is done or the conditions are gone
+        File directory = new File(context.getFilesDir(), CpuPlayer.TABLEBASE_DIRECTORY);
+        try {
+            if(directory.isDirectory()) tablebases = new TablebaseProber(directory);
+        } catch(IOException e) {
+            Log.e("Analysis", "Can't open tablebases", e); //analysis works without them
+        }
+        final SQLiteDatabase db;
+        try {
+            db = GameDatabaseHelper.getInstance(context).getWritableDatabase();
+        } catch(SQLiteException e) {
+            Log.e("Analysis", "Can't open database", e);
+            return;
+        }
+        Cursor cursor = db.query("GAMES", new String[]{"_id"}, "ANALYZED = 0 AND STATUS = " + GameJournal.FINISHED,
+                null, null, null, "_id");
+        while(cursor.moveToNext()) queue.add(cursor.getLong(0));
+        cursor.close();
+
+        int threads = new DeviceCalibration(context).getThreads(); //one per spare core
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for(int i=0; i<threads; i++) {
+            workers.execute(new Runnable() {
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    Search search = new Search(new TranspositionTable(TABLE_SIZE_LOG2));
+                    search.setTablebases(tablebases);
+                    Long game;
+                    while(canRun() && (game = queue.poll()) != null) {
+                        try {
+                            search.getTable().clear(); //plies of one game share the table, games don't
+                            analyzeGame(db, search, game);
+                        } catch(SQLiteException e) {
+                            Log.e("Analysis", "Can't analyze game " + game, e); //next run tries it again
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int[] progress = getProgress(db);
+        Log.i("Analysis", progress[0] + " / " + progress[1] + " games analyzed");
+    }
+
+    private void analyzeGame(SQLiteDatabase db, Search search, long game) { //ply by ply - each one is committed on its own
+        String[] id = {Long.toString(game)};
+        Cursor cursor = db.query("GAMES", new String[]{"RECORD", "WHITE", "BROWN"}, "_id = ?", id, null, null, null);
+        if(!cursor.moveToFirst()) {
+            cursor.close();
+            return;
+        }
+        GameRecord record = GameDatabaseHelper.readRecord(cursor);
+        cursor.close();
+
+        int start = 0;
+        int previous = 0; //white's point of view
+        cursor = db.rawQuery("SELECT PLY, SCORE FROM ANALYSIS WHERE GAME_ID = ? ORDER BY PLY DESC LIMIT 1", id);
+        if(cursor.moveToFirst()) { //analyzed before it was stopped
+            start = cursor.getInt(0) + 1;
+            previous = cursor.getInt(1);
+        }
+        cursor.close();
+
+        Position position = record.positionAt(start);
+        SearchLimits limits = new SearchLimits().nodes(ANALYSIS_NODES);
+        for(int ply=start; ply<=record.getMoveCount(); ply++) { //the last one is the final position
+            if(!canRun()) return;
+            boolean whiteToMove = position.getWhiteToMove();
+            long best = search.findBestMove(position, limits);
+            int score = best == Move.NONE ? -MAX_SCORE : Math.max(-MAX_SCORE, Math.min(MAX_SCORE, search.getScore()));
+            if(!whiteToMove) score = -score;
+
+            db.beginTransaction();
+            try {
+                ContentValues row = new ContentValues();
+                row.put("GAME_ID", game);
+                row.put("PLY", ply);
+                row.put("SCORE", score);
+                row.put("BEST_MOVE", best == Move.NONE ? null : MoveGenerator.notation(position, best));
+                db.insertWithOnConflict("ANALYSIS", null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                if(ply > 0) { //what the move before this position cost its side
+                    int loss = whiteToMove ? score - previous : previous - score; //white to move now - brown moved
+                    ContentValues update = new ContentValues();
+                    update.put("LOSS", loss);
+                    update.put("BLUNDER", loss >= BLUNDER ? 1 : 0);
+                    db.update("ANALYSIS", update, "GAME_ID = ? AND PLY = ?", new String[]{id[0], Integer.toString(ply - 1)});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            previous = score;
+            if(ply < record.getMoveCount()) position.makeMove(record.getMove(ply));
+        }
+        ContentValues analyzed = new ContentValues();
+        analyzed.put("ANALYZED", 1);
+        db.update("GAMES", analyzed, "_id = ?", id);
+    }
+
+    public boolean canRun() { //charging and nobody looking at the app
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED)); //sticky - no receiver needed
+        if(battery == null || battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) == 0) return false;
+        ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        List<ActivityManager.RunningAppProcessInfo> processes = manager.getRunningAppProcesses();
+        if(processes == null) return true;
+        for(ActivityManager.RunningAppProcessInfo process : processes)
+            if(process.pid == Process.myPid())
+                return process.importance != ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+        return true;
+    }
+
+    public static int[] getProgress(SQLiteDatabase db) { //analyzed games, all games
+        return new int[]{(int) DatabaseUtils.queryNumEntries(db, "GAMES", "ANALYZED = 1"),
+                (int) DatabaseUtils.queryNumEntries(db, "GAMES", "STATUS = " + GameJournal.FINISHED)};
+    }
+}
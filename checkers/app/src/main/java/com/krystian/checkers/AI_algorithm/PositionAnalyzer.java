@@ -0,0 +1,85 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+import com.krystian.checkers.engine.search.SearchListener;
+import com.krystian.checkers.engine.search.SearchStats;
+import com.krystian.checkers.engine.search.TranspositionTable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PositionAnalyzer { //top moves of a reviewed position on a background thread; one table for the whole review - neighbouring plies are found in it
+
+    public final static int LINES = 3;
+    public final static int LINE_PLIES = 8;
+    public final static long ANALYSIS_TIME = 30000; //milliseconds - after that the result stays on screen
+    public final static int TABLE_SIZE_LOG2 = 18;
+
+    public interface Callback { //on the main thread, after every finished depth
+        void onAnalysis(int depth, String[] lines, int[] scores);
+    }
+
+    private final Search search = new Search(new TranspositionTable(TABLE_SIZE_LOG2));
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger(); //analysis of an older position is dropped
+    private final long[] line = new long[LINE_PLIES];
+
+    public void analyze(final Position position, final Callback callback) { //position is copied - the caller may change it
+        final Position root = new Position(position);
+        final int mine = generation.incrementAndGet();
+        search.stop(); //the previous one ends at its next check
+        executor.execute(new Runnable() {
+            public void run() {
+                if(generation.get() != mine) return; //another position was chosen before this one started
+                search.clearStop();
+                search.setListener(new SearchListener() {
+                    public void onIteration(SearchStats stats) {
+                        report(root, stats.getDepth(), mine, callback);
+                    }
+                    public void onSearchFinished(SearchStats stats) {}
+                });
+                search.findBestMove(root, new SearchLimits().multiPv(LINES).hardTime(ANALYSIS_TIME));
+            }
+        });
+    }
+
+    public void stop() {
+        generation.incrementAndGet();
+        search.stop();
+    }
+
+    public void shutdown() { //activity is finished
+        stop();
+        executor.shutdown();
+    }
+
+    private void report(Position root, final int depth, final int mine, final Callback callback) { //on the search thread
+        final String[] lines = new String[search.getPvCount()];
+        final int[] scores = new int[search.getPvCount()];
+        for(int i=0; i<lines.length; i++) {
+            int length = search.getLine(i, line);
+            StringBuilder text = new StringBuilder();
+            for(int j=0; j<length; j++) { //notation needs the position before every move
+                if(j > 0) text.append(' ');
+                text.append(MoveGenerator.notation(root, line[j]));
+                root.makeMove(line[j]);
+            }
+            for(int j=0; j<length; j++) root.unmakeMove();
+            lines[i] = text.toString();
+            scores[i] = root.getWhiteToMove() ? search.getPvScore(i) : -search.getPvScore(i); //white's point of view, as boards are shown
+        }
+        handler.post(new Runnable() {
+            public void run() {
+                if(generation.get() == mine) callback.onAnalysis(depth, lines, scores);
+            }
+        });
+    }
+}
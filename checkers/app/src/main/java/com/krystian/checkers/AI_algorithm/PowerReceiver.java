@@ -0,0 +1,13 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+public class PowerReceiver extends BroadcastReceiver { //charger connected - time to analyze stored games
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        context.startService(new Intent(context, AnalysisService.class));
+    }
+}
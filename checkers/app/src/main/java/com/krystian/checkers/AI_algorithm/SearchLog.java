@@ -0,0 +1,49 @@
+package com.krystian.checkers.AI_algorithm;
+
+import android.util.Log;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.search.SearchListener;
+import com.krystian.checkers.engine.search.SearchStats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+public class SearchLog implements SearchListener { //statistics of every cpu search to logcat and, if given, to a file
+
+    public final static String TAG = "Search";
+    public final static long MAX_FILE_SIZE = 1024 * 1024; //file is started again after that
+
+    private final boolean iterations; //every depth or only the final line
+    private final File file;
+
+    public SearchLog(boolean iterations, File file) {
+        this.iterations = iterations;
+        this.file = file;
+    }
+
+    @Override
+    public void onIteration(SearchStats stats) {
+        if(iterations) Log.v(TAG, "iteration " + stats.getDepth() + ": " + stats.getIterationMillis(stats.getDepth())
+                + " ms, " + stats);
+    }
+
+    @Override
+    public void onSearchFinished(SearchStats stats) {
+        String line = Move.toString(stats.getBestMove()) + " " + stats;
+        Log.d(TAG, line);
+        if(file == null) return;
+        try {
+            Writer out = new FileWriter(file, file.length() < MAX_FILE_SIZE);
+            try {
+                out.write(System.currentTimeMillis() + " " + line + "\n");
+            } finally {
+                out.close();
+            }
+        } catch(IOException e) {
+            Log.e(TAG, "Can't write search log", e);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.krystian.checkers;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 
+import com.krystian.checkers.AI_algorithm.AnalysisService;
+import com.krystian.checkers.AI_algorithm.CpuPlayer;
+import com.krystian.checkers.AI_algorithm.DeviceCalibration;
+import com.krystian.checkers.engine.search.Difficulty;
 import com.krystian.checkers.gameMechanics.GameActivity;
 
-public class MainActivity extends AppCompatActivity implements View.OnClickListener {
+public class MainActivity extends AppCompatActivity implements View.OnClickListener, View.OnLongClickListener {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -18,10 +24,25 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         Button play = (Button) findViewById(R.id.play);
         Button stats = (Button) findViewById(R.id.stats);
         Button history = (Button) findViewById(R.id.history);
+        Button difficulty = (Button) findViewById(R.id.difficulty);
+        Button clock = (Button) findViewById(R.id.clock);
         play.setOnClickListener(this);
         stats.setOnClickListener(this);
+        stats.setOnLongClickListener(this); //hidden debug screen with move latency
         history.setOnClickListener(this);
+        difficulty.setOnClickListener(this);
+        showDifficulty(difficulty);
+        clock.setOnClickListener(this);
+        showClock(clock);
 
+        DeviceCalibration calibration = new DeviceCalibration(this);
+        if(!calibration.isCurrent()) new Thread(calibration).start(); //first launch or an update - games before it use defaults
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        startService(new Intent(this, AnalysisService.class)); //does nothing unless charging and the app is gone
     }
 
     @Override
@@ -36,7 +57,36 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             case R.id.history:
                 startActivity(new Intent(this, com.krystian.checkers.database.GamesListActivity.class));
                 break;
+            case R.id.difficulty: //next level, after the strongest back to the weakest
+                Difficulty[] levels = Difficulty.values();
+                CpuPlayer.setDifficulty(this, levels[(CpuPlayer.getDifficulty(this).ordinal() + 1) % levels.length]);
+                showDifficulty((Button) v);
+                break;
+            case R.id.clock: //untimed, sudden death, Fischer...
+                SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+                int mode = (preferences.getInt(GameActivity.CLOCK_KEY, 0) + 1) % GameActivity.CLOCK_BASES.length;
+                preferences.edit().putInt(GameActivity.CLOCK_KEY, mode).apply();
+                showClock((Button) v);
+                break;
             default: break;
         }
     }
+
+    @Override
+    public boolean onLongClick(View v) {
+        if(v.getId() != R.id.stats) return false;
+        startActivity(new Intent(this, com.krystian.checkers.database.LatencyActivity.class));
+        return true;
+    }
+
+    private void showDifficulty(Button button) {
+        String[] names = getResources().getStringArray(R.array.difficulty_levels); //in the order of Difficulty
+        button.setText(getString(R.string.difficulty_button, names[CpuPlayer.getDifficulty(this).ordinal()]));
+    }
+
+    private void showClock(Button button) {
+        String[] names = getResources().getStringArray(R.array.clock_modes); //in the order of GameActivity.CLOCK_BASES
+        int mode = PreferenceManager.getDefaultSharedPreferences(this).getInt(GameActivity.CLOCK_KEY, 0);
+        button.setText(getString(R.string.clock_button, names[mode % names.length]));
+    }
 }
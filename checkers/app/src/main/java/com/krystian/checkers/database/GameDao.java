@@ -0,0 +1,215 @@
+package com.krystian.checkers.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.gameMechanics.LatencyHistogram;
+import com.krystian.checkers.gameMechanics.MoveLatency;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GameDao { //queries of the screens on one background thread over the shared connection; results come back on the main thread
+
+    public interface Callback<T> { //on the main thread
+        void onResult(T result); //null if the database can't be used
+    }
+
+    private interface Query<T> {
+        T run(SQLiteDatabase db);
+    }
+
+    public static class StoredGame { //one game for the review screen
+        public String name;
+        public GameRecord record;
+        public int[] scores; //from the background analysis, per ply - empty until it got to this game
+        public boolean[] blunders;
+    }
+
+    public static class GameItem { //row of the games list - no moves
+        public long id;
+        public long number;
+        public String name;
+
+        @Override
+        public String toString() { return name; } //as ArrayAdapter shows it
+    }
+
+    public static class Latencies { //move latency of the last game and of all of them merged
+        public LatencyHistogram[] last; //null if no game has them
+        public LatencyHistogram[] all;
+        public int games;
+    }
+
+    private static GameDao instance;
+
+    private final GameDatabaseHelper helper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private GameDao(Context context) {
+        helper = GameDatabaseHelper.getInstance(context);
+    }
+
+    public static synchronized GameDao getInstance(Context context) { //lives as long as the process
+        if(instance == null) instance = new GameDao(context.getApplicationContext());
+        return instance;
+    }
+
+    public void loadStats(final long since, final String difficulty, Callback<int[]> callback) { //0 and null - no filter
+        submit(new Query<int[]>() {
+            public int[] run(SQLiteDatabase db) { //played, won, drawn, lost, average plies, average seconds
+                int[] gamesStats = new int[6];
+                StringBuilder where = new StringBuilder("STATUS = " + GameJournal.FINISHED
+                        + " AND COLOUR IS NOT NULL"); //the player's games - imported ones have no colour
+                ArrayList<String> arguments = new ArrayList<>();
+                if(since > 0) {
+                    where.append(" AND FINISHED_AT >= ?");
+                    arguments.add(Long.toString(since));
+                }
+                if(difficulty != null) {
+                    where.append(" AND DIFFICULTY = ?");
+                    arguments.add(difficulty);
+                }
+                Cursor cursor = db.rawQuery("SELECT COUNT(*), SUM(RESULT * COLOUR = 1), SUM(RESULT = 0), " +
+                        "SUM(RESULT * COLOUR = -1), AVG(PLIES), AVG(DURATION) / 1000 FROM GAMES WHERE " + where,
+                        arguments.toArray(new String[arguments.size()])); //one pass over the index - no game is read
+                if(cursor.moveToFirst()) {
+                    for(int i=0; i<gamesStats.length; i++) gamesStats[i] = cursor.getInt(i);
+                }
+                cursor.close();
+                if(since == 0 && difficulty == null) { //totals include games from before the result columns
+                    cursor = db.query("STATS", new String[] {"PLAYED", "WON", "DRAWN", "LOST"},
+                            null, null, null, null, null);
+                    if(cursor.moveToFirst()) {
+                        for(int i=0; i<4; i++) gamesStats[i] = cursor.getInt(i);
+                    }
+                    cursor.close();
+                }
+                return gamesStats;
+            }
+        }, callback);
+    }
+
+    public void loadGames(final long beforeNumber, final long beforeId, final int count,
+                          Callback<ArrayList<GameItem>> callback) { //newest first
+        submit(new Query<ArrayList<GameItem>>() { //finished games below (beforeNumber, beforeId) - keyset, not offset
+            public ArrayList<GameItem> run(SQLiteDatabase db) {
+                ArrayList<GameItem> page = new ArrayList<>();
+                String number = Long.toString(beforeNumber);
+                Cursor cursor = db.query("GAMES", new String[]{"_id", "NUMBER", "NAME"},
+                        "STATUS = " + GameJournal.FINISHED + " AND (NUMBER < ? OR (NUMBER = ? AND _id < ?))",
+                        new String[]{number, number, Long.toString(beforeId)}, null, null, "NUMBER DESC, _id DESC",
+                        Integer.toString(count)); //_id breaks ties - a NUMBER given twice doesn't lose a game at a page edge
+                while(cursor.moveToNext()) {
+                    GameItem item = new GameItem();
+                    item.id = cursor.getLong(0);
+                    item.number = cursor.getLong(1);
+                    item.name = cursor.getString(2);
+                    page.add(item);
+                }
+                cursor.close();
+                return page;
+            }
+        }, callback);
+    }
+
+    public void findPosition(final Position position, final long exceptGame, Callback<int[]> callback) { //other games with it
+        final long hash = position.getHash(); //Zobrist key - side to move included
+        submit(new Query<int[]>() {
+            public int[] run(SQLiteDatabase db) { //games, won by white, drawn, won by brown
+                int[] games = new int[4];
+                Cursor cursor = db.rawQuery("SELECT COUNT(*), SUM(RESULT = 1), SUM(RESULT = 0), SUM(RESULT = -1) " +
+                        "FROM GAMES WHERE STATUS = " + GameJournal.FINISHED + " AND _id != ? AND _id IN " +
+                        "(SELECT GAME_ID FROM POSITIONS WHERE HASH = ?)", //index seek, each game once however often it was there
+                        new String[]{Long.toString(exceptGame), Long.toString(hash)});
+                if(cursor.moveToFirst()) {
+                    for(int i=0; i<games.length; i++) games[i] = cursor.getInt(i);
+                }
+                cursor.close();
+                return games;
+            }
+        }, callback);
+    }
+
+    public void loadLatencies(Callback<Latencies> callback) {
+        submit(new Query<Latencies>() {
+            public Latencies run(SQLiteDatabase db) {
+                Latencies latencies = new Latencies();
+                latencies.all = new LatencyHistogram[MoveLatency.PHASES];
+                for(int i=0; i<latencies.all.length; i++) latencies.all[i] = new LatencyHistogram();
+                Cursor cursor = db.query("GAMES", new String[]{"LATENCY"}, "LATENCY IS NOT NULL",
+                        null, null, null, "_id DESC");
+                while(cursor.moveToNext()) { //one game at a time - only merged histograms are kept
+                    try {
+                        LatencyHistogram[] game = MoveLatency.fromBytes(cursor.getBlob(0));
+                        if(latencies.last == null) latencies.last = game;
+                        for(int i=0; i<Math.min(game.length, latencies.all.length); i++) latencies.all[i].add(game[i]);
+                        latencies.games++;
+                    } catch(IOException e) {
+                        Log.e("Latency", "Damaged latency record", e);
+                    }
+                }
+                cursor.close();
+                return latencies;
+            }
+        }, callback);
+    }
+
+    public void loadGame(final long id, Callback<StoredGame> callback) { //GAMES row id
+        submit(new Query<StoredGame>() {
+            public StoredGame run(SQLiteDatabase db) {
+                Cursor cursor = db.query("GAMES", new String[]{"NAME", "RECORD", "WHITE", "BROWN", "_id", "RESULT"},
+                        "_id = ?", new String[]{Long.toString(id)}, null, null, null);
+                if(!cursor.moveToFirst()) {
+                    cursor.close();
+                    return null;
+                }
+                StoredGame game = new StoredGame();
+                game.name = cursor.getString(0);
+                game.record = GameDatabaseHelper.readRecord(cursor);
+                long gameId = cursor.getLong(4);
+                cursor.close();
+
+                cursor = db.query("ANALYSIS", new String[]{"SCORE", "BLUNDER"}, "GAME_ID = ?",
+                        new String[]{Long.toString(gameId)}, null, null, "PLY"); //plies without gaps - they are analyzed in order
+                game.scores = new int[cursor.getCount()];
+                game.blunders = new boolean[cursor.getCount()];
+                for(int i=0; cursor.moveToNext(); i++) {
+                    game.scores[i] = cursor.getInt(0);
+                    game.blunders[i] = cursor.getInt(1) != 0;
+                }
+                cursor.close();
+                return game;
+            }
+        }, callback);
+    }
+
+    private <T> void submit(final Query<T> query, final Callback<T> callback) {
+        executor.execute(new Runnable() {
+            public void run() {
+                T result = null;
+                try {
+                    result = query.run(helper.getWritableDatabase()); //WAL - the one connection reads and writes
+                } catch(SQLiteException e) {
+                    Log.e("Database", "Query failed", e);
+                }
+                final T found = result;
+                handler.post(new Runnable() {
+                    public void run() {
+                        callback.onResult(found);
+                    }
+                });
+            }
+        });
+    }
+}
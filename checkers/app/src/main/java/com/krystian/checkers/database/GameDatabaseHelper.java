@@ -2,25 +2,49 @@ package com.krystian.checkers.database;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Position;
+
+import java.io.IOException;
+
 public class GameDatabaseHelper extends SQLiteOpenHelper {
 
     public static final String DATABASE_NAME = "GameDatabase";
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 9;
+
+    private static final String RESULT_COLUMNS = "RESULT INTEGER, COLOUR INTEGER, PLIES INTEGER, DURATION INTEGER, " +
+            "DIFFICULTY TEXT, FINISHED_AT INTEGER"; //Pdn result, player's pawn value, milliseconds, Difficulty name, epoch ms
 
-    public GameDatabaseHelper(Context context) {
+    private static GameDatabaseHelper instance;
+
+    private GameDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    public static synchronized GameDatabaseHelper getInstance(Context context) { //one connection for the whole process - never closed
+        if(instance == null) instance = new GameDatabaseHelper(context.getApplicationContext());
+        return instance;
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE STATS (_id INTEGER PRIMARY KEY AUTOINCREMENT, PLAYED INTEGER, WON INTEGER," +
                 "DRAWN INTEGER, LOST INTEGER)");
         db.execSQL("CREATE TABLE GAMES (_id INTEGER PRIMARY KEY AUTOINCREMENT, NUMBER INTEGER, NAME TEXT, " +
-                "WHITE TEXT, BROWN TEXT, BOARD TEXT)");
+                "WHITE TEXT, BROWN TEXT, BOARD TEXT, LATENCY BLOB, ANALYZED INTEGER DEFAULT 0, " +
+                "RECORD BLOB, STATUS INTEGER DEFAULT " + GameJournal.FINISHED + ", " + RESULT_COLUMNS + ", " +
+                "IMPORTED INTEGER DEFAULT 0)");
+        createResultIndexes(db);
+        createListIndex(db);
+        createPositions(db);
+        createAnalysis(db);
+        createMoves(db);
         ContentValues stats = new ContentValues();
         stats.put("PLAYED", 0); //no games played yet
         stats.put("WON", 0);
@@ -31,6 +55,95 @@ public class GameDatabaseHelper extends SQLiteOpenHelper {
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if(oldVersion < 2) db.execSQL("ALTER TABLE GAMES ADD COLUMN LATENCY BLOB"); //move latency histograms
+        if(oldVersion < 3) {
+            db.execSQL("ALTER TABLE GAMES ADD COLUMN ANALYZED INTEGER DEFAULT 0"); //1 when every ply is in ANALYSIS
+            createAnalysis(db);
+        }
+        if(oldVersion < 4) db.execSQL("ALTER TABLE GAMES ADD COLUMN RECORD BLOB"); //GameRecord; older games only have the text columns
+        if(oldVersion < 5) {
+            db.execSQL("ALTER TABLE GAMES ADD COLUMN STATUS INTEGER DEFAULT " + GameJournal.FINISHED); //PLAYING while in the journal
+            createMoves(db);
+        }
+        if(oldVersion < 6) { //older games stay NULL there - only STATS counts them
+            for(String column : RESULT_COLUMNS.split(", ")) db.execSQL("ALTER TABLE GAMES ADD COLUMN " + column);
+            createResultIndexes(db);
+        }
+        if(oldVersion < 7) createListIndex(db);
+        if(oldVersion < 8) { //stored games are indexed once - later ones when they are finished
+            createPositions(db);
+            Cursor cursor = db.query("GAMES", new String[]{"_id", "RECORD", "WHITE", "BROWN"},
+                    "STATUS = " + GameJournal.FINISHED, null, null, null, null);
+            while(cursor.moveToNext()) addPositions(db, cursor.getLong(0), readRecord(cursor));
+            cursor.close();
+        }
+        if(oldVersion < 9) db.execSQL("ALTER TABLE GAMES ADD COLUMN IMPORTED INTEGER DEFAULT 0"); //1 for games from PDN files
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if(!db.isReadOnly()) db.enableWriteAheadLogging(); //writes of the journal and the analysis don't block readers
+    }
+
+    public static GameRecord readRecord(Cursor cursor) { //needs RECORD, WHITE and BROWN of GAMES; RESULT too for the result
+        GameRecord record = null;
+        byte[] data = cursor.getBlob(cursor.getColumnIndexOrThrow("RECORD"));
+        if(data != null) {
+            try {
+                record = GameRecord.fromBytes(data);
+            } catch(IOException e) {
+                Log.e("Database", "Damaged game record", e); //text columns are tried then
+            }
+        }
+        if(record == null) record = GameRecord.fromNotation(cursor.getString(cursor.getColumnIndexOrThrow("WHITE")),
+                cursor.getString(cursor.getColumnIndexOrThrow("BROWN")));
+        int result = cursor.getColumnIndex("RESULT");
+        if(result >= 0 && !cursor.isNull(result)) record.setResult(cursor.getInt(result)); //the journal writes the record before the game ends
+        return record;
+    }
+
+    public static void addPositions(SQLiteDatabase db, long gameId, GameRecord record) { //every ply of a stored game
+        Position position = record.getStart();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO POSITIONS (HASH, GAME_ID, PLY) VALUES (?, ?, ?)");
+        try {
+            for(int ply=0; ; ply++) { //one compiled statement - imports add millions of these
+                insert.bindLong(1, position.getHash());
+                insert.bindLong(2, gameId);
+                insert.bindLong(3, ply);
+                insert.executeInsert();
+                if(ply == record.getMoveCount()) break;
+                position.makeMove(record.getMove(ply));
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    private static void createPositions(SQLiteDatabase db) { //Zobrist key of every position of the stored games
+        db.execSQL("CREATE TABLE POSITIONS (_id INTEGER PRIMARY KEY AUTOINCREMENT, HASH INTEGER, GAME_ID INTEGER, " +
+                "PLY INTEGER)");
+        db.execSQL("CREATE INDEX POSITIONS_HASH ON POSITIONS (HASH, GAME_ID)");
+    }
+
+    private static void createAnalysis(SQLiteDatabase db) { //engine view of every ply of a game; SCORE from white's side
+        db.execSQL("CREATE TABLE ANALYSIS (_id INTEGER PRIMARY KEY AUTOINCREMENT, GAME_ID INTEGER, PLY INTEGER, " +
+                "SCORE INTEGER, BEST_MOVE TEXT, LOSS INTEGER, BLUNDER INTEGER DEFAULT 0)");
+        db.execSQL("CREATE UNIQUE INDEX ANALYSIS_GAME_PLY ON ANALYSIS (GAME_ID, PLY)");
+    }
+
+    private static void createResultIndexes(SQLiteDatabase db) { //filters of the stats screen
+        db.execSQL("CREATE INDEX GAMES_FINISHED_AT ON GAMES (STATUS, FINISHED_AT)");
+        db.execSQL("CREATE INDEX GAMES_DIFFICULTY ON GAMES (DIFFICULTY, FINISHED_AT)");
+    }
+
+    private static void createListIndex(SQLiteDatabase db) { //pages of the games list, newest first; FINISHED_AT has one already
+        db.execSQL("CREATE INDEX GAMES_NUMBER ON GAMES (STATUS, NUMBER)");
+    }
 
+    private static void createMoves(SQLiteDatabase db) { //GameJournal - engine moves of an unfinished game, one row per ply
+        db.execSQL("CREATE TABLE MOVES (_id INTEGER PRIMARY KEY AUTOINCREMENT, GAME_ID INTEGER, PLY INTEGER, " +
+                "MOVE INTEGER)");
+        db.execSQL("CREATE UNIQUE INDEX MOVES_GAME_PLY ON MOVES (GAME_ID, PLY)");
     }
 }
@@ -0,0 +1,290 @@
+package com.krystian.checkers.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.krystian.checkers.AI_algorithm.BookUpdater;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Move;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GameJournal { //moves of the game on screen appended to MOVES as they are played, on a background thread; finishing only marks the GAMES row
+
+    public final static int PLAYING = 0; //GAMES.STATUS - rows from before the journal are finished
+    public final static int FINISHED = 1;
+
+    public interface ResumeCallback { //on the main thread
+        GameRecord onResume(GameRecord record); //moves of a game the process died in, or null; returns the game on screen
+    }
+
+    private final Context context;
+    private final GameDatabaseHelper helper;
+    private final static ExecutorService executor = Executors.newSingleThreadExecutor(); //one writer for the process, across recreated activities
+    private final static ExecutorService bookExecutor = Executors.newSingleThreadExecutor(); //indexing and book merges of finished games - moves don't wait
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Long> pending = new ArrayList<>(); //moves not written yet, Move.NONE for a taken back one; guarded by itself
+    private boolean settled; //resume() decided which row is written to - nothing is flushed before; guarded by pending
+    private long gameId = -1; //GAMES row of this game, only used on the executor; inserted with the first move
+    private int written; //plies in MOVES
+    private GameRecord record; //the same plies, null after a failed flush - GAMES.RECORD follows it; only used on the executor
+
+    public GameJournal(Context context) {
+        this.context = context.getApplicationContext();
+        helper = GameDatabaseHelper.getInstance(this.context);
+    }
+
+    public void resume(final ResumeCallback callback) { //called once, before the first move is written
+        executor.execute(new Runnable() {
+            public void run() {
+                long id = -1;
+                GameRecord record = null;
+                try {
+                    SQLiteDatabase db = helper.getWritableDatabase();
+                    id = findUnfinished(db);
+                    if(id >= 0) record = readMoves(db, id);
+                } catch(SQLiteException e) {
+                    Log.e("Journal", "Can't read unfinished game", e); //a new game is played then
+                }
+                final long foundId = id;
+                final GameRecord found = record;
+                handler.post(new Runnable() {
+                    public void run() {
+                        settle(foundId, found, callback.onResume(found));
+                    }
+                });
+            }
+        });
+    }
+
+    private void settle(long id, GameRecord found, GameRecord playing) { //on the main thread, before any flush
+        boolean adopted = found != null && startsWith(playing, found);
+        synchronized(pending) { //whatever the game on screen has that the row doesn't - appends so far included
+            settled = true;
+            pending.clear();
+            for(int ply=adopted ? found.getMoveCount() : 0; ply<playing.getMoveCount(); ply++)
+                pending.add(playing.getMove(ply));
+        }
+        if(adopted) executor.execute(new Adopt(id, found));
+        else if(id >= 0) executor.execute(new Discard(id)); //a new game was started, or the row didn't replay
+        executor.execute(flush);
+    }
+
+    private static boolean startsWith(GameRecord game, GameRecord row) {
+        if(row.getMoveCount() > game.getMoveCount() || !row.getStart().sameBoard(game.getStart())) return false;
+        for(int ply=0; ply<row.getMoveCount(); ply++)
+            if(row.getMove(ply) != game.getMove(ply)) return false;
+        return true;
+    }
+
+    public void append(long move) { //every ply on the real board; a burst of them is written in one transaction
+        synchronized(pending) {
+            pending.add(move);
+        }
+        executor.execute(flush);
+    }
+
+    public void takeBack(int plies) { //last plies of the game gone; pending ones just aren't written
+        synchronized(pending) {
+            for(int i=0; i<plies; i++) {
+                int last = pending.size() - 1;
+                if(last >= 0 && pending.get(last) != Move.NONE) pending.remove(last);
+                else pending.add(Move.NONE); //written already - in order with the moves around it
+            }
+        }
+        executor.execute(flush);
+    }
+
+    public void finish(final GameRecord record, final byte[] latency, final int colour, final String difficulty,
+                       final long duration) { //result is set; the plies are on disk already
+        final long finishedAt = System.currentTimeMillis();
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    flush.run();
+                    markFinished(helper.getWritableDatabase(), record, latency, colour, difficulty, duration, finishedAt);
+                } catch(SQLiteException e) {
+                    Log.e("Journal", "Can't finish game", e); //stays unfinished - it's resumed next time
+                    return;
+                }
+                bookExecutor.execute(new PositionIndexer(context)); //for the position search
+                bookExecutor.execute(new BookUpdater(context)); //merged into the opening book with the next few games
+            }
+        });
+    }
+
+    public void abandon() { //game left on purpose - nothing to resume
+        executor.execute(new Runnable() {
+            public void run() {
+                synchronized(pending) {
+                    pending.clear();
+                }
+                if(gameId < 0) return;
+                new Discard(gameId).run();
+                gameId = -1;
+                written = 0;
+                record = null;
+            }
+        });
+    }
+
+    private class Adopt implements Runnable { //the game on screen goes on from this row - later plies are written after its own
+        private final long id;
+        private final GameRecord found;
+
+        Adopt(long id, GameRecord found) {
+            this.id = id;
+            this.found = GameRecord.initial(); //a copy - the main thread has the one it was given
+            for(int ply=0; ply<found.getMoveCount(); ply++) this.found.add(found.getMove(ply));
+        }
+
+        public void run() {
+            gameId = id;
+            written = found.getMoveCount();
+            record = found;
+            try { //rows journaled before GAMES.RECORD was kept up to date don't have it
+                ContentValues game = new ContentValues();
+                game.put("RECORD", record.toBytes());
+                helper.getWritableDatabase().update("GAMES", game, "_id = ?", new String[]{Long.toString(id)});
+            } catch(SQLiteException | IllegalStateException e) {
+                Log.e("Journal", "Can't write record", e); //finish() writes it then
+                record = null;
+            }
+        }
+    }
+
+    private class Discard implements Runnable { //unfinished game nobody goes on with
+        private final long id;
+
+        Discard(long id) {
+            this.id = id;
+        }
+
+        public void run() {
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                String[] ids = {Long.toString(id)};
+                db.beginTransaction();
+                try {
+                    db.delete("MOVES", "GAME_ID = ?", ids);
+                    db.delete("GAMES", "_id = ? AND STATUS = " + PLAYING, ids);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch(SQLiteException e) {
+                Log.e("Journal", "Can't remove game", e);
+            }
+        }
+    }
+
+    private final Runnable flush = new Runnable() {
+        public void run() {
+            ArrayList<Long> moves;
+            synchronized(pending) {
+                if(!settled || pending.isEmpty()) return; //not known where to yet, or an earlier flush took them
+                moves = new ArrayList<>(pending);
+                pending.clear();
+            }
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    ContentValues row = new ContentValues();
+                    for(long move : moves) {
+                        if(move == Move.NONE) { //taken back
+                            if(written == 0) continue;
+                            written--;
+                            if(record != null) record.truncate(written);
+                            db.delete("MOVES", "GAME_ID = ? AND PLY = ?",
+                                    new String[]{Long.toString(gameId), Integer.toString(written)});
+                            continue;
+                        }
+                        if(gameId < 0) {
+                            ContentValues game = new ContentValues();
+                            game.put("STATUS", PLAYING);
+                            gameId = db.insertOrThrow("GAMES", null, game);
+                            record = GameRecord.initial();
+                        }
+                        row.put("GAME_ID", gameId);
+                        row.put("PLY", written); //index of the move, as in ANALYSIS
+                        row.put("MOVE", move);
+                        db.insertOrThrow("MOVES", null, row);
+                        if(record != null) record.add(move);
+                        written++;
+                    }
+                    if(gameId >= 0 && record != null) {
+                        ContentValues game = new ContentValues();
+                        game.put("RECORD", record.toBytes()); //one byte per ply - finishing doesn't write it
+                        db.update("GAMES", game, "_id = ?", new String[]{Long.toString(gameId)});
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch(SQLiteException | IllegalStateException e) {
+                Log.e("Journal", "Can't write moves", e); //finish() writes the whole record then
+                record = null;
+            }
+        }
+    };
+
+    private static long findUnfinished(SQLiteDatabase db) { //-1 if there is none
+        Cursor cursor = db.query("GAMES", new String[]{"_id"}, "STATUS = " + PLAYING, null, null, null, "_id DESC", "1");
+        long id = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        cursor.close();
+        return id;
+    }
+
+    private static GameRecord readMoves(SQLiteDatabase db, long id) { //only read - the row is this journal's once it's adopted
+        GameRecord record = GameRecord.initial();
+        Cursor cursor = db.query("MOVES", new String[]{"MOVE"}, "GAME_ID = ?", new String[]{Long.toString(id)},
+                null, null, "PLY");
+        while(cursor.moveToNext()) record.add(cursor.getLong(0)); //GameRecorder checks them when it replays
+        cursor.close();
+        return record;
+    }
+
+    private void markFinished(SQLiteDatabase db, GameRecord finished, byte[] latency, int colour, String difficulty,
+                              long duration, long finishedAt) { //one row of GAMES and one of STATS - positions are indexed later
+        int outcome = finished.getResult() * colour; //1 - player won, -1 - lost
+        String column = outcome > 0 ? "WON" : outcome < 0 ? "LOST" : "DRAWN";
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE STATS SET PLAYED = PLAYED + 1, " + column + " = " + column + " + 1"); //only one record in this table
+
+            long gameIndex = DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(NUMBER), 0) + 1 FROM GAMES WHERE STATUS = "
+                    + FINISHED, null); //after imported games too
+            ContentValues gamesUpdate = new ContentValues();
+            gamesUpdate.put("NUMBER", gameIndex);
+            gamesUpdate.put("NAME", "Partia #"+gameIndex);
+            gamesUpdate.put("STATUS", FINISHED);
+            if(gameId < 0 || record == null || written != finished.getMoveCount())
+                gamesUpdate.put("RECORD", finished.toBytes()); //a flush failed - otherwise it's there already
+            gamesUpdate.put("LATENCY", latency);
+            gamesUpdate.put("RESULT", finished.getResult()); //the stored record says unfinished - readRecord takes this
+            gamesUpdate.put("COLOUR", colour);
+            gamesUpdate.put("PLIES", finished.getMoveCount());
+            gamesUpdate.put("DURATION", duration);
+            gamesUpdate.put("DIFFICULTY", difficulty);
+            gamesUpdate.put("FINISHED_AT", finishedAt);
+            if(gameId < 0) gameId = db.insertOrThrow("GAMES", null, gamesUpdate); //ended before any move
+            else db.update("GAMES", gamesUpdate, "_id = ?", new String[]{Long.toString(gameId)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        gameId = -1;
+        written = 0;
+        record = null;
+    }
+}
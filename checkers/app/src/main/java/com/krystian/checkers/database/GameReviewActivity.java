@@ -1,8 +1,5 @@
 package com.krystian.checkers.database;
 
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteException;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
@@ -10,10 +7,15 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.GridLayout;
 import android.widget.LinearLayout;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.krystian.checkers.AI_algorithm.PositionAnalyzer;
 import com.krystian.checkers.R;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.KeyframeIndex;
+import com.krystian.checkers.engine.search.Evaluator;
 import com.krystian.checkers.gameMechanics.GameActivity;
 import com.krystian.checkers.gameMechanics.Pawn;
 import com.krystian.checkers.gameMechanics.PlayableTile;
@@ -26,24 +28,26 @@ import static com.krystian.checkers.gameMechanics.GameActivity.NUMBER_OF_PAWNS;
 import static com.krystian.checkers.gameMechanics.GameActivity.NUMBER_OF_PLAYABLE_TILES;
 import static com.krystian.checkers.gameMechanics.GameActivity.NUMBER_OF_TILES;
 
-public class GameReviewActivity extends AppCompatActivity implements View.OnClickListener {
+public class GameReviewActivity extends AppCompatActivity implements View.OnClickListener, PositionAnalyzer.Callback {
+
+    public final static String GAME_ID = "GameId";
 
 
     GridLayout board;
     PlayableTile[] playableTile = new PlayableTile[NUMBER_OF_PLAYABLE_TILES];
     View[] playableTileView = new View[NUMBER_OF_PLAYABLE_TILES];
-    long gameNumber; //taken fromm the list and got with intent extras
-    int currentMoveNumber = 0;
-    int numberOfWhiteMoves = 0; //from specific (chosen) game
-    int numberOfBrownMoves = 0;
-    boolean whiteToMove = false;
+    long gameId; //GAMES row, taken from the list and got with intent extras
+    KeyframeIndex index = new KeyframeIndex(GameRecord.initial()); //empty game until the database is read
+    int ply = 0; //shown position - after this many moves
     TextView game;
     TextView moveDescription;
     Button leftArrow;
     Button rightArrow;
-    String whiteMoves; //game progress taken from database
-    String brownMoves;
-    String boardStates;
+    SeekBar scrubber;
+    TextView analysisLines;
+    PositionAnalyzer analyzer; //null while analysis is off
+    int[] storedScores = new int[0]; //from the background analysis, per ply - empty until it got to this game
+    boolean[] storedBlunders = new boolean[0];
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -55,65 +59,74 @@ public class GameReviewActivity extends AppCompatActivity implements View.OnClic
         rightArrow = (Button) findViewById(R.id.right_arrow);
         leftArrow.setOnClickListener(this);
         rightArrow.setOnClickListener(this);
+        findViewById(R.id.analysis).setOnClickListener(this);
+        analysisLines = (TextView) findViewById(R.id.analysis_lines);
         moveDescription = (TextView) findViewById(R.id.move_description);
-        gameNumber = (long) getIntent().getExtras().get("GameNumber");
-
-        getGameFromDatabase();
+        scrubber = (SeekBar) findViewById(R.id.scrubber);
+        gameId = getIntent().getLongExtra(GAME_ID, -1);
 
-        for(int i=0; i<whiteMoves.length(); i++) {
-            if(whiteMoves.charAt(i) == '#') numberOfWhiteMoves++;
-        }
-        for(int i=0; i<brownMoves.length(); i++) {
-            if(brownMoves.charAt(i) == '#') numberOfBrownMoves++;
-        }
+        getGameFromDatabase(); //the board shows the start until it's back
+        scrubber.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if(fromUser) showPly(progress);
+            }
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
 
         measureBoard();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if(analyzer != null) analyzer.shutdown();
+    }
+
     public void onClick(View view) {
         switch(view.getId()) {
-            case R.id.left_arrow:
-                if(currentMoveNumber != 0) {
-                    if(whiteToMove) currentMoveNumber--; // show previous move (brown)
-                    whiteToMove = !whiteToMove;
-                    setMoveDescription();
-                    setNewState();
-
+            case R.id.analysis: //on and off - the table stays warm only while it's on
+                if(analyzer == null) {
+                    analyzer = new PositionAnalyzer();
+                    analyze();
                 }
+                else {
+                    analyzer.shutdown();
+                    analyzer = null;
+                    analysisLines.setText("");
+                }
+                break;
+            case R.id.left_arrow:
+                if(ply > 0) showPly(ply - 1);
                 break;
             case R.id.right_arrow:
-                if(currentMoveNumber < numberOfWhiteMoves ||
-                        (currentMoveNumber <= numberOfBrownMoves && whiteToMove)) {
-                    if(!whiteToMove)
-                        currentMoveNumber++; //show next move (white)
-                    whiteToMove = !whiteToMove; //don't go beyond the last board state - even with colors
-
-                    setMoveDescription();
-                    setNewState();
-                    break;
-                }
+                if(ply < index.getPlyCount()) showPly(ply + 1);
+                break;
         }
     }
 
-    public void getGameFromDatabase() {
-        try {
-            GameDatabaseHelper dbHelper = new GameDatabaseHelper(this);
-            SQLiteDatabase db = dbHelper.getReadableDatabase();
-            Cursor cursor = db.query("GAMES", new String[]{"NAME", "WHITE", "BROWN", "BOARD"},
-                    "NUMBER = ?", new String[]{Long.toString(gameNumber)}, null, null, null);
-            cursor.moveToFirst();
-            game.setText(cursor.getString(0)); //name of the game
-            whiteMoves = cursor.getString(1);
-            brownMoves = cursor.getString(2);
-            boardStates = cursor.getString(3);
-
-            cursor.close();
-            db.close();
-
-        } catch(SQLiteException e) {
-            Toast.makeText(this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
-        }
+    public void showPly(int newPly) { //keyframe and a few moves - no scanning of the whole game
+        ply = newPly;
+        scrubber.setProgress(ply);
+        setMoveDescription();
+        setNewState();
+    }
 
+    public void getGameFromDatabase() {
+        GameDao.getInstance(this).loadGame(gameId, new GameDao.Callback<GameDao.StoredGame>() {
+            public void onResult(GameDao.StoredGame stored) {
+                if(stored == null) {
+                    Toast.makeText(GameReviewActivity.this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                game.setText(stored.name);
+                index = new KeyframeIndex(stored.record); //the only pass over the moves
+                storedScores = stored.scores;
+                storedBlunders = stored.blunders;
+                scrubber.setMax(index.getPlyCount());
+                showPly(0);
+            }
+        });
     }
 
     public void measureBoard() {
@@ -170,66 +183,52 @@ public class GameReviewActivity extends AppCompatActivity implements View.OnClic
     }
 
     public void setNewState() {
-        int stateCounter = 0;
-        int currentState;
-        if(whiteToMove) currentState = 2 * currentMoveNumber - 1;
-        else currentState = 2 * currentMoveNumber;
-        int playableTileIndex = 0;
-        for(int i=0; i<boardStates.length(); i++) {
-            if(boardStates.charAt(i) == '#') { //# separates states and moves;
-                stateCounter++;
-                continue;
-            }
-
-            if(stateCounter == currentState) {
-                if(boardStates.charAt(i) == '=') playableTile[playableTileIndex].setIsTaken(-2); //black queen as one char
-                else {
-                    playableTile[playableTileIndex].setIsTaken
-                            (Character.getNumericValue(boardStates.charAt(i)));
-                }
-                playableTileIndex++;
-                if(playableTileIndex==50) break; //all tiles set
-            }
-            else if(stateCounter > currentState) break;
-        }
+        if(playableTile[0] == null) return; //board isn't measured yet
+        int[] tiles = index.positionAt(ply).toTiles();
+        for(int i=0; i<tiles.length; i++) playableTile[i].setIsTaken(tiles[i]);
         drawPawns();
+        analyze();
     }
 
-    public void setMoveDescription() {
-        int moveCounter = 1;
-        String moveDesc = "";
-        if(currentMoveNumber == 0) moveDescription.setText("");
-        else {
-            if(whiteToMove && currentMoveNumber <= numberOfWhiteMoves) {
-                for(int i=0; i<whiteMoves.length(); i++) {
-                    if(whiteMoves.charAt(i) == '#') {
-                        moveCounter++;
-                        continue;
-                    }
-
-                    if(moveCounter == currentMoveNumber) {
-                        moveDesc += whiteMoves.charAt(i); //current move found
-                    }
-                    else if(moveCounter > currentMoveNumber) break; //no need to search more
-                }
-                moveDescription.setText(getResources().getString(R.string.white_move, currentMoveNumber, moveDesc));
-            }
+    public void showStoredAnalysis() { //score after the shown move and whether the move was a blunder
+        if(ply >= storedScores.length) return;
+        String mark = storedBlunders[ply - 1] ? getString(R.string.blunder_mark) : "";
+        moveDescription.append(getString(R.string.stored_score, mark, (float) storedScores[ply] / Evaluator.MAN));
+    }
 
-            else if(!whiteToMove && currentMoveNumber <= numberOfBrownMoves){
-                for(int i=0; i<brownMoves.length(); i++) {
-                    if(brownMoves.charAt(i) == '#') {
-                        moveCounter++;
-                        continue;
-                    }
-
-                    if(moveCounter == currentMoveNumber) {
-                        moveDesc += brownMoves.charAt(i);
-                    }
-                    else if(moveCounter > currentMoveNumber) break;
-                }
-                moveDescription.setText(getResources().getString(R.string.brown_move, currentMoveNumber, moveDesc));
-            }
+    public void analyze() { //the shown position; an older analysis is stopped
+        if(analyzer == null) return;
+        analysisLines.setText("");
+        analyzer.analyze(index.positionAt(ply), this);
+    }
+
+    @Override
+    public void onAnalysis(int depth, String[] lines, int[] scores) {
+        StringBuilder text = new StringBuilder(getString(R.string.analysis_depth, depth));
+        for(int i=0; i<lines.length; i++)
+            text.append('\n').append(getString(R.string.analysis_line, (float) scores[i] / Evaluator.MAN, lines[i]));
+        analysisLines.setText(text);
+    }
+
+    public void setMoveDescription() { //move that led to the shown position
+        if(ply == 0) {
+            moveDescription.setText("");
+            return;
         }
+        int moveNumber = (ply - 1) / 2 + 1;
+        int description = index.whiteMoves(ply - 1) ? R.string.white_move : R.string.brown_move;
+        moveDescription.setText(getString(description, moveNumber, index.getNotation(ply - 1)));
+        showStoredAnalysis();
+        showOtherGames();
+    }
 
+    public void showOtherGames() { //how often the shown position came up in the other stored games and how they ended
+        final int shown = ply;
+        GameDao.getInstance(this).findPosition(index.positionAt(ply), gameId, new GameDao.Callback<int[]>() {
+            public void onResult(int[] games) {
+                if(games == null || games[0] == 0 || ply != shown) return; //nothing found or another ply by now
+                moveDescription.append("\n" + getString(R.string.position_games, games[0], games[1], games[2], games[3]));
+            }
+        });
     }
 }
@@ -2,62 +2,187 @@ package com.krystian.checkers.database;
 
 import android.app.ListActivity;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.DatabaseUtils;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteException;
-import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
-import android.widget.CursorAdapter;
 import android.widget.ListView;
-import android.widget.SimpleCursorAdapter;
 import android.widget.Toast;
 
 import com.krystian.checkers.R;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.List;
 
-public class GamesListActivity extends ListActivity {
+public class GamesListActivity extends ListActivity implements AbsListView.OnScrollListener {
+
+    public final static int PAGE_SIZE = 50;
+    public final static String EXPORT_FILE = "games.pdn"; //in the app's external files directory
+    private final static int IMPORT_MENU = 1;
+    private final static int EXPORT_MENU = 2;
+    private final static int IMPORT_REQUEST = 1;
+
+    ArrayAdapter<GameDao.GameItem> listAdapter;
+    long lastNumber = Long.MAX_VALUE; //of the oldest game loaded - the next page starts below it
+    long lastId = Long.MAX_VALUE;
+    boolean loading = false;
+    boolean allLoaded = false;
+    boolean transferring = false; //one import or export at a time
 
-    SQLiteDatabase db;
-    Cursor cursor;
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        getListFromDatabase();
+        listAdapter = new ArrayAdapter<>(this, R.layout.listview_item, R.id.list_text);
+        setListAdapter(listAdapter);
+        getListView().setOnScrollListener(this);
+        loadPage();
+    }
+
+    public void loadPage() { //names only; moves are read when a game is opened
+        if(loading || allLoaded) return;
+        loading = true;
+        GameDao.getInstance(this).loadGames(lastNumber, lastId, PAGE_SIZE, new GameDao.Callback<ArrayList<GameDao.GameItem>>() {
+            public void onResult(ArrayList<GameDao.GameItem> page) {
+                loading = false;
+                if(page == null) {
+                    Toast.makeText(GamesListActivity.this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if(page.size() < PAGE_SIZE) allLoaded = true;
+                if(!page.isEmpty()) {
+                    lastNumber = page.get(page.size() - 1).number;
+                    lastId = page.get(page.size() - 1).id;
+                }
+                listAdapter.addAll(page);
+            }
+        });
+    }
+
+    public void reload() { //after an import - numbers of the loaded pages aren't the newest any more
+        listAdapter.clear();
+        lastNumber = Long.MAX_VALUE;
+        lastId = Long.MAX_VALUE;
+        allLoaded = false;
+        loadPage();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        menu.add(Menu.NONE, IMPORT_MENU, Menu.NONE, R.string.import_pdn);
+        menu.add(Menu.NONE, EXPORT_MENU, Menu.NONE, R.string.export_pdn);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if(transferring) return true;
+        switch(item.getItemId()) {
+            case IMPORT_MENU:
+                Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+                intent.setType("*/*"); //PDN has no registered type
+                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                startActivityForResult(intent, IMPORT_REQUEST);
+                return true;
+            case EXPORT_MENU:
+                exportGames();
+                return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if(requestCode == IMPORT_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null)
+            importGames(data);
+    }
+
+    public void importGames(final Intent data) {
+        transferring = true;
+        new Thread(new Runnable() {
+            public void run() {
+                int games = -1;
+                try {
+                    InputStream in = getContentResolver().openInputStream(data.getData());
+                    try {
+                        PdnTransfer transfer = new PdnTransfer(GamesListActivity.this, PdnTransfer.DEFAULT_BATCH);
+                        games = transfer.importGames(in, progress);
+                    } finally {
+                        in.close();
+                    }
+                } catch(IOException | RuntimeException e) {
+                    Log.e("PDN", "Import failed", e); //batches committed before it stay
+                }
+                transferDone(games < 0 ? getString(R.string.transfer_failed) : getString(R.string.import_done, games));
+            }
+        }).start();
     }
 
-    public void getListFromDatabase() {
-        ListView gamesList = getListView();
-        try {
-            GameDatabaseHelper dbHelper = new GameDatabaseHelper(this);
-            db = dbHelper.getReadableDatabase();
-            cursor = db.query("GAMES", new String[]{"_id", "NAME"}, null, null, null, null, "NUMBER DESC");
-            CursorAdapter listAdapter = new SimpleCursorAdapter(this, R.layout.listview_item,
-                    cursor, new String[]{"NAME"}, new int[]{R.id.list_text}, 0);
-            gamesList.setAdapter(listAdapter);
-        } catch(SQLiteException e) {
-            Toast.makeText(this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
+    public void exportGames() {
+        transferring = true;
+        new Thread(new Runnable() {
+            public void run() {
+                String message = getString(R.string.transfer_failed);
+                try {
+                    File file = new File(getExternalFilesDir(null), EXPORT_FILE);
+                    OutputStream out = new FileOutputStream(file);
+                    try {
+                        PdnTransfer transfer = new PdnTransfer(GamesListActivity.this, PdnTransfer.DEFAULT_BATCH);
+                        message = getString(R.string.export_done, transfer.exportGames(out, progress), file.getPath());
+                    } finally {
+                        out.close();
+                    }
+                } catch(IOException | RuntimeException e) {
+                    Log.e("PDN", "Export failed", e);
+                }
+                transferDone(message);
+            }
+        }).start();
+    }
+
+    final PdnTransfer.Progress progress = new PdnTransfer.Progress() { //games per second in the title
+        public void onProgress(final int games, final int skipped, final double gamesPerSecond) {
+            Log.i("PDN", games + " games, " + skipped + " skipped, " + Math.round(gamesPerSecond) + " games/s");
+            runOnUiThread(new Runnable() {
+                public void run() {
+                    setTitle(getString(R.string.transfer_progress, games, skipped, gamesPerSecond));
+                }
+            });
         }
+    };
+
+    private void transferDone(final String message) {
+        runOnUiThread(new Runnable() {
+            public void run() {
+                transferring = false;
+                setTitle(getApplicationInfo().labelRes);
+                Toast.makeText(GamesListActivity.this, message, Toast.LENGTH_LONG).show();
+                reload();
+            }
+        });
     }
 
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if(firstVisibleItem + visibleItemCount >= totalItemCount - PAGE_SIZE / 2) loadPage(); //before the end is reached
+    }
+
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {}
+
     @Override
     protected void onListItemClick(ListView l, View v, int position, long id) {
         super.onListItemClick(l, v, position, id);
-        long tableSize = DatabaseUtils.queryNumEntries(db, "GAMES");
         Intent intent = new Intent(this, GameReviewActivity.class);
-        intent.putExtra("GameNumber", tableSize - position); //they are listed from the newest ones (with bigger index)
+        intent.putExtra(GameReviewActivity.GAME_ID, listAdapter.getItem(position).id);
         startActivity(intent);
     }
-
-    public void onDestroy() {
-        super.onDestroy();
-        cursor.close();
-        db.close();
-    }
 }
@@ -0,0 +1,50 @@
+package com.krystian.checkers.database;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.krystian.checkers.R;
+import com.krystian.checkers.gameMechanics.LatencyHistogram;
+
+public class LatencyActivity extends AppCompatActivity { //debug screen: long click on statistics button
+
+    private final static int[] PHASE_NAMES = {R.string.latency_total, R.string.latency_search, R.string.latency_apply,
+            R.string.latency_database, R.string.latency_render}; //in MoveLatency order
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_latency);
+
+        GameDao.getInstance(this).loadLatencies(new GameDao.Callback<GameDao.Latencies>() {
+            public void onResult(GameDao.Latencies latencies) {
+                if(latencies == null) Toast.makeText(LatencyActivity.this, R.string.database_unavailable,
+                        Toast.LENGTH_SHORT).show();
+                else showLatencies(latencies);
+            }
+        });
+    }
+
+    public void showLatencies(GameDao.Latencies latencies) {
+        StringBuilder text = new StringBuilder();
+        if(latencies.last == null) text.append(getString(R.string.latency_none));
+        else {
+            text.append(getString(R.string.latency_last_game)).append("\n\n");
+            describe(text, latencies.last);
+            text.append("\n").append(getString(R.string.latency_all_games, latencies.games)).append("\n\n");
+            describe(text, latencies.all);
+        }
+        ((TextView) findViewById(R.id.latency)).setText(text);
+    }
+
+    private void describe(StringBuilder text, LatencyHistogram[] histograms) {
+        for(int i=0; i<Math.min(histograms.length, PHASE_NAMES.length); i++) {
+            LatencyHistogram histogram = histograms[i];
+            text.append(getString(R.string.latency_line, getString(PHASE_NAMES[i]), histogram.getCount(),
+                    histogram.percentile(50) / 1000.0, histogram.percentile(95) / 1000.0,
+                    histogram.percentile(99) / 1000.0, histogram.getMax() / 1000.0)).append("\n");
+        }
+    }
+}
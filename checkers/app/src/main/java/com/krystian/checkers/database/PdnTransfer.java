@@ -0,0 +1,121 @@
+package com.krystian.checkers.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Pdn;
+import com.krystian.checkers.engine.PdnReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+public class PdnTransfer { //PDN files in and out of GAMES a batch of games at a time - collections of any size; run it off the main thread
+
+    public final static int DEFAULT_BATCH = 500; //games per transaction and per export page
+
+    public interface Progress { //on the working thread, after every batch
+        void onProgress(int games, int skipped, double gamesPerSecond);
+    }
+
+    private final SQLiteDatabase db;
+    private final int batch;
+
+    public PdnTransfer(Context context, int batch) {
+        db = GameDatabaseHelper.getInstance(context).getWritableDatabase();
+        this.batch = batch;
+    }
+
+    public int importGames(InputStream in, Progress progress) throws IOException { //games added; illegal ones are skipped
+        PdnReader reader = new PdnReader(new InputStreamReader(in, "UTF-8"));
+        long start = System.nanoTime();
+        int games = 0;
+        boolean more = true;
+        while(more) {
+            db.beginTransaction(); //one commit per batch - not per game, not one for the whole file
+            try {
+                long number = DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(NUMBER), 0) FROM GAMES WHERE STATUS = "
+                        + GameJournal.FINISHED, null); //read in the batch's transaction - a game finished meanwhile isn't numbered twice
+                for(int i=0; i<batch; i++) {
+                    GameRecord record = reader.next();
+                    if(record == null) {
+                        more = false;
+                        break;
+                    }
+                    number++;
+                    ContentValues game = new ContentValues();
+                    game.put("NUMBER", number);
+                    game.put("NAME", name(reader, number));
+                    game.put("STATUS", GameJournal.FINISHED);
+                    game.put("ANALYZED", 1); //other people's games - not for the background analysis
+                    game.put("IMPORTED", 1); //nor for the opening book
+                    game.put("RECORD", record.toBytes());
+                    game.put("RESULT", record.getResult() == GameRecord.UNFINISHED ? null : record.getResult());
+                    game.put("PLIES", record.getMoveCount()); //no COLOUR - the player's stats leave them out
+                    long id = db.insertOrThrow("GAMES", null, game);
+                    GameDatabaseHelper.addPositions(db, id, record);
+                    games++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if(progress != null) progress.onProgress(games, reader.getSkipped(), rate(games, start));
+        }
+        return games;
+    }
+
+    public int exportGames(OutputStream out, Progress progress) throws IOException { //every finished game, oldest first
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), PdnReader.BUFFER_SIZE);
+        long start = System.nanoTime();
+        long last = 0;
+        long lastId = 0;
+        int games = 0;
+        while(true) {
+            String number = Long.toString(last);
+            Cursor cursor = db.query("GAMES", new String[]{"NUMBER", "NAME", "RECORD", "WHITE", "BROWN", "_id", "RESULT"},
+                    "STATUS = " + GameJournal.FINISHED + " AND (NUMBER > ? OR (NUMBER = ? AND _id > ?))",
+                    new String[]{number, number, Long.toString(lastId)}, null, null, "NUMBER, _id",
+                    Integer.toString(batch)); //keyset pages on (NUMBER, _id) - one window each, never the whole table
+            int rows = 0;
+            try {
+                while(cursor.moveToNext()) {
+                    rows++;
+                    last = cursor.getLong(0);
+                    lastId = cursor.getLong(5);
+                    GameRecord record = GameDatabaseHelper.readRecord(cursor);
+                    String name = cursor.getString(1);
+                    Pdn.write(writer, name == null ? "#" + last : name, "?", "?", record); //players' names aren't stored
+                    games++;
+                }
+            } finally {
+                cursor.close();
+            }
+            if(progress != null) progress.onProgress(games, 0, rate(games, start));
+            if(rows < batch) break;
+        }
+        writer.flush();
+        return games;
+    }
+
+    private static String name(PdnReader reader, long number) {
+        String white = reader.getTag("White");
+        String brown = reader.getTag("Black");
+        if(white != null && brown != null && !white.isEmpty() && !brown.isEmpty()) return white + " - " + brown;
+        String event = reader.getTag("Event");
+        return event != null && !event.isEmpty() ? event : "Partia #" + number;
+    }
+
+    private static double rate(int games, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds > 0 ? games / seconds : 0;
+    }
+}
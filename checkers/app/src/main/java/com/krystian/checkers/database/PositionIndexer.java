@@ -0,0 +1,53 @@
+package com.krystian.checkers.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+public class PositionIndexer implements Runnable { //POSITIONS of games finished since the last run, then their MOVES go - run it off the main thread
+
+    private final Context context;
+
+    public PositionIndexer(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void run() {
+        try {
+            SQLiteDatabase db = GameDatabaseHelper.getInstance(context).getWritableDatabase();
+            ArrayList<Long> games = new ArrayList<>();
+            Cursor cursor = db.rawQuery("SELECT DISTINCT GAME_ID FROM MOVES JOIN GAMES ON GAMES._id = MOVES.GAME_ID " +
+                    "WHERE GAMES.STATUS = " + GameJournal.FINISHED, null); //a game still being played keeps its moves
+            while(cursor.moveToNext()) games.add(cursor.getLong(0));
+            cursor.close();
+            for(long game : games) index(db, game); //one transaction each - the journal's writes get in between
+        } catch(SQLiteException e) {
+            Log.e("Database", "Can't index positions", e); //next finished game tries again
+        }
+    }
+
+    private static void index(SQLiteDatabase db, long game) {
+        String[] id = {Long.toString(game)};
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query("GAMES", new String[]{"RECORD", "WHITE", "BROWN"}, "_id = ?", id, null, null, null);
+            try {
+                if(cursor.moveToFirst()) {
+                    db.delete("POSITIONS", "GAME_ID = ?", id);
+                    GameDatabaseHelper.addPositions(db, game, GameDatabaseHelper.readRecord(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+            db.delete("MOVES", "GAME_ID = ?", id); //the record has them now
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
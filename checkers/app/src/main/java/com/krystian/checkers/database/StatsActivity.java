@@ -1,30 +1,72 @@
 package com.krystian.checkers.database;
 
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteException;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import com.krystian.checkers.R;
+import com.krystian.checkers.engine.search.Difficulty;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 
-public class StatsActivity extends AppCompatActivity {
+
+public class StatsActivity extends AppCompatActivity implements AdapterView.OnItemSelectedListener {
+
+    public final static long DAY = 24 * 60 * 60 * 1000L;
+    public final static long[] PERIODS = {0, 7 * DAY, 30 * DAY, 365 * DAY}; //same order as stats_periods; 0 - all games
+
+    Spinner period;
+    Spinner level; //0 - all levels, then Difficulty in order
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_stats);
 
+        period = (Spinner) findViewById(R.id.period);
+        period.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item,
+                getResources().getStringArray(R.array.stats_periods)));
+        ArrayList<String> levels = new ArrayList<>();
+        levels.add(getString(R.string.all_levels));
+        levels.addAll(Arrays.asList(getResources().getStringArray(R.array.difficulty_levels)));
+        level = (Spinner) findViewById(R.id.level);
+        level.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, levels));
+        period.setOnItemSelectedListener(this); //both report their first selection - stats are loaded then
+        level.setOnItemSelectedListener(this);
+    }
+
+    @Override
+    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+        long since = PERIODS[period.getSelectedItemPosition()];
+        if(since != 0) since = System.currentTimeMillis() - since;
+        int chosen = level.getSelectedItemPosition();
+        String difficulty = chosen == 0 ? null : Difficulty.values()[chosen - 1].name();
+        GameDao.getInstance(this).loadStats(since, difficulty, new GameDao.Callback<int[]>() {
+            public void onResult(int[] stats) {
+                if(stats == null) Toast.makeText(StatsActivity.this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
+                else showStats(stats);
+            }
+        });
+    }
+
+    @Override
+    public void onNothingSelected(AdapterView<?> parent) {}
+
+    public void showStats(int[] stats) { //played, won, drawn, lost, average plies, average seconds
         TextView gamesPlayed = (TextView) findViewById(R.id.played_games);
         TextView gamesWon = (TextView) findViewById(R.id.won_games);
         TextView percent = (TextView) findViewById(R.id.percent);
+        TextView average = (TextView) findViewById(R.id.average);
 
-        int[] stats = getDatabaseStats();
         gamesPlayed.setText(getResources().getString(R.string.games_number, stats[0]));
         gamesWon.setText(getResources().getString(R.string.stats_number, stats[1], stats[2], stats[3]));
+        average.setText(getResources().getString(R.string.average_values, (stats[4] + 1) / 2, stats[5] / 60, stats[5] % 60));
 
         if(stats[0] != 0)
         {
@@ -35,30 +77,4 @@ public class StatsActivity extends AppCompatActivity {
         }
         else  percent.setText("-");
     }
-
-    public int[] getDatabaseStats() {
-        int[] gamesStats = new int[4];
-        try {
-            GameDatabaseHelper dbHelper = new GameDatabaseHelper(this);
-            SQLiteDatabase db = dbHelper.getReadableDatabase();
-            Cursor cursor = db.query("STATS", new String[] {"PLAYED", "WON", "DRAWN", "LOST"},
-                    null, null, null, null, null);
-
-            if(cursor.moveToFirst()) {
-                gamesStats[0] = cursor.getInt(0);
-                gamesStats[1] = cursor.getInt(1);
-                gamesStats[2] = cursor.getInt(2);
-                gamesStats[3] = cursor.getInt(3);
-            }
-
-            cursor.close();
-            db.close();
-
-        } catch(SQLiteException e) {
-            Toast toast = Toast.makeText(this, R.string.database_unavailable, Toast.LENGTH_SHORT);
-            toast.show();
-        }
-
-        return gamesStats;
-    }
 }
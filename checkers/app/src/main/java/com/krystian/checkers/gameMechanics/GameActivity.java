@@ -48,28 +48,37 @@
 
 package com.krystian.checkers.gameMechanics;
 
-import android.content.ContentValues;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.DatabaseUtils;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteException;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.GridLayout;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Random;
 
+import com.krystian.checkers.AI_algorithm.CpuPlayer;
 import com.krystian.checkers.AI_algorithm.GameNode;
 import com.krystian.checkers.AI_algorithm.GameTree;
 import com.krystian.checkers.R;
-import com.krystian.checkers.database.GameDatabaseHelper;
+import com.krystian.checkers.database.GameJournal;
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.GameSnapshot;
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.Pdn;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.time.GameClock;
 
 
 public class GameActivity extends AppCompatActivity implements View.OnClickListener {
@@ -77,6 +86,14 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
     public final static int NUMBER_OF_PAWNS = 20; //both white and brown
     public final static int NUMBER_OF_TILES = 100;
     public final static int NUMBER_OF_PLAYABLE_TILES = 50;
+    public final static String CLOCK_KEY = "clock"; //index of CLOCK_BASES, 0 - untimed
+    public final static long[] CLOCK_BASES = {0, 5*60000, 3*60000, 10*60000}; //same order as clock_modes
+    public final static long[] CLOCK_INCREMENTS = {0, 0, 2000, 5000}; //0 - sudden death
+    public final static long CLOCK_TICK = 100; //milliseconds between clock redraws
+    public final static int PLAYER_COLOUR = 1; //pawn value of the player's side - the cpu plays brown
+    public final static String SNAPSHOT_KEY = "snapshot"; //GameSnapshot bytes in the saved instance state
+    private final static int TAKE_BACK_MENU = 1;
+    private final static int REDO_MENU = 2;
 
     GridLayout board;
     View[] playableTileView = new View[NUMBER_OF_PLAYABLE_TILES];
@@ -94,10 +111,17 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
     int takeNumber = 0; //to show possible moves during multiple taking (if there are more branches from specific node)
     int drawCounter = 0;
     GameTree gameTree = null; //to check moves for cpu
+    CpuPlayer cpuPlayer; //engine search choosing among game tree nodes
+    MoveLatency latency = new MoveLatency(); //click to cpu move on screen - saved with the game
+    GameClock clock; //null in untimed games
+    Handler clockHandler = new Handler();
+    TextView whiteClock, brownClock;
 
-    String whiteMoves = ""; //for database saving using checkers notation
-    String brownMoves = ""; //each move and board state is separated by '#'
-    String boardStates = "";
+    GameRecorder recorder = new GameRecorder(); //moves for the database - saved as a GameRecord blob
+    GameJournal journal; //every move is on disk as soon as it's played
+    boolean gameOver = false;
+    long gameStarted; //elapsed realtime of the first drawn board
+    GameSnapshot restored; //from the saved instance state until the board is drawn
 
 
     public GameActivity() {};
@@ -107,12 +131,129 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
         setContentView(R.layout.activity_game);
 
         board = (GridLayout) findViewById(R.id.board);
+        cpuPlayer = (CpuPlayer) getLastCustomNonConfigurationInstance(); //kept over a rotation - table, files and worker
+        if(cpuPlayer == null) cpuPlayer = new CpuPlayer(getApplicationContext());
+        journal = new GameJournal(this);
+        createClock();
+        if(savedInstanceState != null) restoreSnapshot(savedInstanceState.getByteArray(SNAPSHOT_KEY));
         setDiagonals(); //for queen moves and pawn/queen takings
         measureBoard(); //and draw it with pawns after that
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        cpuPlayer.pause();
+        if(clock != null) clock.pause(SystemClock.elapsedRealtime()); //nobody loses on time with the app in background
+        clockHandler.removeCallbacks(clockTick);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) { //record and clock - a couple of hundred bytes, microseconds
+        super.onSaveInstanceState(outState);
+        if(gameOver || playableTile[0] == null) return; //nothing to keep yet
+        outState.putByteArray(SNAPSHOT_KEY, new GameSnapshot(recorder.getRecord(), clock)
+                .toBytes(SystemClock.elapsedRealtime())); //a take in progress isn't in the record - it starts again
+    }
+
+    public void restoreSnapshot(byte[] data) {
+        if(data == null) return;
+        try {
+            restored = GameSnapshot.fromBytes(data);
+        } catch(IOException e) {
+            Log.e("Game", "Damaged snapshot", e); //the journal still has the moves
+            return;
+        }
+        if(restored.getClock() != null) { //paused - onResume() starts it
+            clock = restored.getClock();
+            cpuPlayer.setClock(clock);
+            whiteClock.setVisibility(View.VISIBLE);
+            brownClock.setVisibility(View.VISIBLE);
+            showClock();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if(isFinishing() && !gameOver) journal.abandon(); //left on purpose; without onDestroy the process died and it's resumed
+        cpuPlayer.cancel(); //a move found now would go to a board nobody sees
+        if(!isChangingConfigurations()) cpuPlayer.close();
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() { //the next screen searches again from the snapshot, on a warm table
+        return cpuPlayer;
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        cpuPlayer.resume();
+        if(clock != null && clock.isStarted()) {
+            clock.resume(SystemClock.elapsedRealtime());
+            clockHandler.post(clockTick);
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        menu.add(Menu.NONE, TAKE_BACK_MENU, Menu.NONE, R.string.take_back);
+        menu.add(Menu.NONE, REDO_MENU, Menu.NONE, R.string.redo_move);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(TAKE_BACK_MENU).setEnabled(!gameOver && recorder.getRecord().getMoveCount() > 0);
+        menu.findItem(REDO_MENU).setEnabled(!gameOver && recorder.getUndoneCount() > 0);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) { //a whole move - the player's and the cpu's reply
+        switch(item.getItemId()) {
+            case TAKE_BACK_MENU:
+                takeBack(whiteMove ? 2 : 1);
+                return true;
+            case REDO_MENU:
+                redo(2);
+                return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     /* ============================== 1. Layout ===================== */
 
+    public void createClock() {
+        whiteClock = (TextView) findViewById(R.id.white_clock);
+        brownClock = (TextView) findViewById(R.id.brown_clock);
+        cpuPlayer.setClock(null); //a kept player may have the clock of the screen before
+        int mode = PreferenceManager.getDefaultSharedPreferences(this).getInt(CLOCK_KEY, 0);
+        if(mode <= 0 || mode >= CLOCK_BASES.length) return; //untimed - clocks stay hidden
+        clock = new GameClock(CLOCK_BASES[mode], CLOCK_INCREMENTS[mode]);
+        cpuPlayer.setClock(clock);
+        whiteClock.setVisibility(View.VISIBLE);
+        brownClock.setVisibility(View.VISIBLE);
+        showClock();
+    }
+
+    Runnable clockTick = new Runnable() {
+        public void run() {
+            showClock();
+            if(whiteMove && clock.isFlagged(true, SystemClock.elapsedRealtime())) checkGameState(); //cpu flag is seen after its move
+            else clockHandler.postDelayed(this, CLOCK_TICK);
+        }
+    };
+
+    public void showClock() {
+        long now = SystemClock.elapsedRealtime();
+        long white = (clock.getRemaining(true, now) + 999) / 1000; //rounded up - 0:00 only when the time is out
+        long brown = (clock.getRemaining(false, now) + 999) / 1000;
+        whiteClock.setText(getString(R.string.clock_time, white / 60, white % 60));
+        brownClock.setText(getString(R.string.clock_time, brown / 60, brown % 60));
+    }
+
     public void measureBoard() {
         board.post(new Runnable() {
             public void run() {
@@ -149,23 +290,81 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
             brownPawn.add(new Pawn( i+1, false, false));
         }
         for(int i=0; i<NUMBER_OF_PLAYABLE_TILES; i++) { //create playableTiles
-            if(i>=0 && i < 20) {
-                playableTile[i] = new PlayableTile((i+1), -1); //-1 is brown pawn
-                boardStates += "-"; //it will count as -1, but with only one character
-            }
-            else if(i>=30 && i <50) {
-                playableTile[i] = new PlayableTile((i+1), 1); //1 is white pawn
-                boardStates += "1";
+            if(i>=0 && i < 20) playableTile[i] = new PlayableTile((i+1), -1); //-1 is brown pawn
+            else if(i>=30 && i <50) playableTile[i] = new PlayableTile((i+1), 1); //1 is white pawn
+            else playableTile[i] = new PlayableTile((i+1), 0); //0 means tile is empty
+        }
+        gameStarted = SystemClock.elapsedRealtime();
+        if(restored != null) { //tiles and pawns straight from the engine board - no move goes through the UI
+            recorder = new GameRecorder(restored.getRecord());
+            cpuPlayer.setGame(recorder.getRecord()); //with history - repetitions and the draw counter
+            restored = null;
+            setBoard(recorder.getPosition());
+        }
+        else {
+            if(clock != null) {
+                clock.start(true, SystemClock.elapsedRealtime());
+                clockHandler.postDelayed(clockTick, CLOCK_TICK);
             }
-            else {
-                playableTile[i] = new PlayableTile((i+1), 0); //0 means tile is empty
-                boardStates += "0";
+            drawPawns();
+        }
+        journal.resume(new GameJournal.ResumeCallback() { //also tells the journal which row and ply it is at
+            public GameRecord onResume(GameRecord record) {
+                if(record == null || record.getMoveCount() == 0 || recorder.getRecord().getMoveCount() != 0)
+                    return recorder.getRecord(); //nothing to resume, or already playing - a snapshot or new moves
+                recorder = new GameRecorder(record);
+                cpuPlayer.setGame(recorder.getRecord()); //with history - repetitions and the draw counter
+                if(clock != null) { //times aren't in the journal - both start again
+                    clock.start(recorder.getPosition().getWhiteToMove(), SystemClock.elapsedRealtime());
+                    clockHandler.removeCallbacks(clockTick);
+                    clockHandler.postDelayed(clockTick, CLOCK_TICK);
+                }
+                setBoard(recorder.getPosition());
+                return recorder.getRecord();
             }
+        });
+    }
+
+    public void setBoard(Position position) { //resumed game - pawns and tiles from the engine board
+        int[] tiles = position.toTiles();
+        whitePawn.clear();
+        brownPawn.clear();
+        for(int i=0; i<tiles.length; i++) {
+            playableTile[i].setIsTaken(tiles[i]);
+            if(tiles[i] > 0) whitePawn.add(new Pawn(i+1, true, tiles[i] == 2));
+            else if(tiles[i] < 0) brownPawn.add(new Pawn(i+1, false, tiles[i] == -2));
         }
-        boardStates += "#"; //end of
+        whiteMove = position.getWhiteToMove();
+        drawCounter = position.getReversibleMoves();
         drawPawns();
     }
 
+    public void takeBack(int plies) { //any number of plies; the journal and the cpu's game follow
+        if(gameOver || gameTree != null) return; //cpu is choosing its move
+        plies = recorder.takeBack(plies);
+        if(plies == 0) return;
+        journal.takeBack(plies);
+        goToRecorded(plies);
+    }
+
+    public void redo(int plies) { //moves taken back, as they were played
+        if(gameOver || gameTree != null) return;
+        int from = recorder.getRecord().getMoveCount();
+        plies = recorder.redo(plies);
+        for(int ply=from; ply<from+plies; ply++) journal.append(recorder.getRecord().getMove(ply));
+        if(plies > 0) goToRecorded(plies);
+    }
+
+    private void goToRecorded(int plies) { //board from the engine position - no pawn list is undone by hand
+        cpuPlayer.setGame(recorder.getRecord()); //search table stays - the next reply is found as fast
+        chosenPawn = null; //a take in progress is dropped with the rest
+        possibleMove.clear();
+        mandatoryPawn = false;
+        takeNumber = 0;
+        if(clock != null && plies % 2 == 1) clock.press(SystemClock.elapsedRealtime()); //the other side's time goes now
+        setBoard(recorder.getPosition());
+    }
+
     public void drawPawns() { //will be useful after every move
         for(int i=0; i<playableTileView.length; i++) {
             if(playableTile[i].getIsTaken() == 1) playableTileView[i].setBackgroundResource(R.drawable.white_pawn);
@@ -174,6 +373,7 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
             else if(playableTile[i].getIsTaken() == -2) playableTileView[i].setBackgroundResource(R.drawable.brown_queen);
             else playableTileView[i].setBackgroundResource(0);
         }
+        latency.boardChanged(board);
 
         //checkGameState();
         //if(whitePawn.size() != 0 && brownPawn.size() != 0) checkForMoves();
@@ -214,52 +414,21 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
     /* ====================================== 5. Database ========================= */
 
     public boolean checkGameState() {
-
-        if(whitePawn.size() == 0 || brownPawn.size() == 0 || drawCounter == 25) { //a game just ended
-            try {
-                GameDatabaseHelper dbHelper = new GameDatabaseHelper(this);
-                SQLiteDatabase db = dbHelper.getWritableDatabase();
-                Cursor cursor = db.query("STATS", new String[]{"PLAYED", "WON", "DRAWN", "LOST"},
-                        null, null, null, null, null);
-                cursor.moveToFirst();
-                ContentValues statsUpdate = new ContentValues();
-                int gameUpdate;
-
-                if(whitePawn.size() == 0) {
-                    Toast.makeText(this, R.string.game_lost, Toast.LENGTH_SHORT).show();
-                    gameUpdate = cursor.getInt(3) + 1;
-                    statsUpdate.put("LOST", gameUpdate);
-                }
-                else if(brownPawn.size() == 0) {
-                    Toast.makeText(this, R.string.game_won, Toast.LENGTH_SHORT).show();
-                    gameUpdate = cursor.getInt(1) + 1;
-                    statsUpdate.put("WON", gameUpdate);
-                }
-
-                else if(drawCounter == 25) {
-                    Toast.makeText(this, R.string.game_drawn, Toast.LENGTH_SHORT).show();
-                    gameUpdate = cursor.getInt(2) + 1;
-                    statsUpdate.put("DRAWN", gameUpdate);
-                }
-                int gamesPlayed = cursor.getInt(0) + 1; //just finished game - need to update database
-                statsUpdate.put("PLAYED", gamesPlayed);
-                db.update("STATS", statsUpdate, null, null); //update games number (only one record in this table)
-
-                long gameIndex = DatabaseUtils.queryNumEntries(db, "GAMES") + 1;
-                ContentValues gamesUpdate = new ContentValues();
-                gamesUpdate.put("NUMBER", gameIndex);
-                gamesUpdate.put("NAME", "Partia #"+gameIndex);
-                gamesUpdate.put("WHITE", whiteMoves);
-                gamesUpdate.put("BROWN", brownMoves);
-                gamesUpdate.put("BOARD", boardStates);
-                db.insert("GAMES", null, gamesUpdate); //add another game for analysis
-
-                cursor.close();
-                db.close();
-
-            } catch(SQLiteException e) {
-                Toast.makeText(this, R.string.database_unavailable, Toast.LENGTH_SHORT).show();
-            }
+        if(gameOver) return true; //saved already - the clock or a late draw can't end it twice
+
+        long now = SystemClock.elapsedRealtime();
+        boolean whiteLost = whitePawn.size() == 0 || (clock != null && clock.isFlagged(true, now));
+        boolean brownLost = brownPawn.size() == 0 || (clock != null && clock.isFlagged(false, now));
+        if(whiteLost || brownLost || drawCounter == 25) { //a game just ended
+            clockHandler.removeCallbacks(clockTick);
+            if(clock != null) clock.pause(now);
+            gameOver = true;
+            if(whiteLost) Toast.makeText(this, R.string.game_lost, Toast.LENGTH_SHORT).show();
+            else if(brownLost) Toast.makeText(this, R.string.game_won, Toast.LENGTH_SHORT).show();
+            else Toast.makeText(this, R.string.game_drawn, Toast.LENGTH_SHORT).show();
+            recorder.getRecord().setResult(whiteLost ? Pdn.BROWN_WON : brownLost ? Pdn.WHITE_WON : Pdn.DRAW);
+            journal.finish(recorder.getRecord(), latency.toBytes(), PLAYER_COLOUR, CpuPlayer.getDifficulty(this).name(),
+                    now - gameStarted); //moves are written - the row is marked and stats counted
             startActivity(new Intent(this, com.krystian.checkers.MainActivity.class));
             return true;
         }
@@ -295,8 +464,13 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
         chooseFinalPawn(longestTake); //check all pawns' longest branches and take only the longest one
         if(whiteMove && gameTree != null) gameTree.getCurrentNode().setLengthOfWhiteTaking(longestTake);
         else if(!whiteMove && gameTree == null) {
-            checkForBestMove();
-            makeCpuMove();
+            latency.searchStarted();
+            GameNode forcedNode = cpuPlayer.findForcedNode(playableTile, brownPawn);
+            if(forcedNode != null) playCpuNode(forcedNode); //one legal move - no game tree needed
+            else {
+                checkForBestMove();
+                makeCpuMove();
+            }
         }
     }
 
@@ -304,10 +478,22 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
 
     public void makeCpuMove() {
 
-        Random rand = new Random();
-        int r = rand.nextInt(gameTree.bestNodeList.size());
-        GameNode chosenNode = gameTree.bestNodeList.get(r);
         resetBoardState(); //go back to current state to make a proper move
+        cpuPlayer.chooseNode(playableTile, gameTree, new CpuPlayer.MoveCallback() { //clicks wait - it's brown's move
+            public void onMove(GameNode chosenNode) {
+                if(chosenNode == null) { //engine and game tree disagree - old way then
+                    Random rand = new Random();
+                    int r = rand.nextInt(gameTree.bestNodeList.size());
+                    chosenNode = gameTree.bestNodeList.get(r);
+                }
+                playCpuNode(chosenNode);
+            }
+        });
+    }
+
+    public void playCpuNode(GameNode chosenNode) { //on the real board, pawn trees of brown are from the last checkForMoves()
+        latency.moveChosen();
+        possibleMove.clear();
         chosenPawn = chosenNode.getPawn();
 
         if(!chosenNode.getIsThereTaking()) {
@@ -637,6 +823,7 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
     /* =================================== 2. Game Mechanics ============================= */
 
     public void onClick(View view) {
+        latency.clicked();
         if(whiteMove) {
             if (playableTile[view.getId() - 1].getIsTaken() > 0) { //white pawn (or queen) has just been clicked
                 possibleMove.clear();
@@ -724,7 +911,6 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
                         }
 
                     }
-                    addMoveToDatabase(destination); //but to a global variable first
                     updateDrawCounter();
                     chosenPawn.setPosition(destination);
                     validMove = true;
@@ -748,20 +934,6 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
         }
     }
 
-    public void addMoveToDatabase(int destination) { //but first to global variable
-        if(gameTree == null || gameTree.getAllNodesFound()) { //it's either player's move or final decision for cpu
-            String move = "";
-            if(takeNumber == 0) move += chosenPawn.getPosition(); //starting point in notation
-            if(chosenPawn.getIsQueen() && takeNumber == 0) move += "(D)"; //notation sign for queen
-            if(mandatoryPawn) move += "x"; //notation sign for taking
-            else move += "-"; //notation sign for regular move
-            move += destination; //ending (or mid) point
-
-            if(whiteMove) whiteMoves += move;
-            else brownMoves += move;
-        }
-    }
-
     public void updateDrawCounter() {
         if(gameTree == null || gameTree.getAllNodesFound()) { //it's either player's move or final decision for cpu
             if(mandatoryPawn) drawCounter = 0; //there was taking
@@ -780,24 +952,21 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
         if(chosenPawn.getIsWhite() && !chosenPawn.getIsQueen() && (chosenPawn.getPosition()-1)/5 == 0) { //pawn in the last row
             playableTile[chosenPawn.getPosition() - 1].setIsTaken(2); //white pawn promoted;
             chosenPawn.setIsQueen(true); //only if he finished his moves/takes
-            whiteMoves += "=D"; //notation sign for pawn promotion
         }
         else if(!chosenPawn.getIsWhite() && !chosenPawn.getIsQueen() && (chosenPawn.getPosition()-1)/5 == 9) {
             playableTile[chosenPawn.getPosition() - 1].setIsTaken(-2);
             chosenPawn.setIsQueen(true);
-            if(gameTree == null) brownMoves += "=D";
         }
         mandatoryPawn = false;
         takeNumber = 0;
         if(gameTree == null) { //making move
-            for(PlayableTile tile : playableTile) {
-                if(tile.getIsTaken() == -1) boardStates += "-";
-                else if(tile.getIsTaken() == -2) boardStates += "=";
-                else boardStates += Integer.toString(tile.getIsTaken()); //2, 1 or 0 - it's one character as opposed to -1/-2
+            long move = recorder.moveMade(playableTile, !whiteMove);
+            if(move != Move.NONE) {
+                long databaseStart = latency.databaseStarted();
+                journal.append(move); //only queueing is left on this thread - that's what a ply costs here
+                latency.databaseFinished(databaseStart);
             }
-            boardStates += "#"; //end of one state to know where to read it from database
-            if(whiteMove) whiteMoves += "#";
-            else brownMoves += "#";
+            if(clock != null) clock.press(SystemClock.elapsedRealtime());
 
             chosenPawn = null;
             possibleMove.clear();
@@ -0,0 +1,84 @@
+package com.krystian.checkers.gameMechanics;
+
+import com.krystian.checkers.engine.GameRecord;
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import java.util.Arrays;
+
+public class GameRecorder { //engine moves of the game on screen - each one is found from the board after it
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[] legal = new long[MoveGenerator.MAX_MOVES];
+    private final GameRecord record;
+    private final Position position;
+    private boolean lost; //GameActivity made a move the engine doesn't know - the record ends before it
+    private long[] undone = new long[16]; //taken back moves, the last one on top - redo plays them again
+    private int undoneCount;
+
+    public GameRecorder() {
+        record = GameRecord.initial();
+        position = Position.initial();
+    }
+
+    public GameRecorder(GameRecord resumed) { //moves of a journal; it ends at the first illegal one
+        record = new GameRecord(resumed.getStart());
+        position = resumed.getStart();
+        for(int ply=0; ply<resumed.getMoveCount(); ply++) {
+            long move = resumed.getMove(ply);
+            int count = generator.generate(position, legal);
+            int i = 0;
+            while(i < count && legal[i] != move) i++;
+            if(i == count) break;
+            record.add(move);
+            position.makeMove(move);
+        }
+    }
+
+    public GameRecord getRecord() { return record; }
+    public Position getPosition() { return position; }
+    public int getUndoneCount() { return undoneCount; }
+
+    public int takeBack(int plies) { //unmade on the position's own history; plies actually taken back
+        int count = record.getMoveCount();
+        plies = Math.min(plies, count);
+        for(int i=1; i<=plies; i++) {
+            if(undoneCount == undone.length) undone = Arrays.copyOf(undone, undoneCount * 2);
+            undone[undoneCount++] = record.getMove(count - i);
+            position.unmakeMove();
+        }
+        record.truncate(count - plies);
+        lost = false; //the board is drawn from the position again
+        return plies;
+    }
+
+    public int redo(int plies) { //taken back moves made again, as long as nothing else was played since
+        plies = Math.min(plies, undoneCount);
+        for(int i=0; i<plies; i++) {
+            long move = undone[--undoneCount];
+            record.add(move);
+            position.makeMove(move);
+        }
+        return plies;
+    }
+
+    public long moveMade(PlayableTile[] board, boolean whiteToMove) { //board after the move; Move.NONE if it can't be found
+        if(lost) return Move.NONE;
+        int[] tiles = new int[board.length];
+        for(int i=0; i<board.length; i++) tiles[i] = board[i].getIsTaken();
+        Position target = Position.fromTiles(tiles, whiteToMove);
+        int count = generator.generate(position, legal);
+        for(int i=0; i<count; i++) {
+            position.makeMove(legal[i]);
+            if(position.sameBoard(target)) {
+                record.add(legal[i]);
+                if(undoneCount > 0) undoneCount = undone[undoneCount - 1] == legal[i] ? undoneCount - 1 : 0; //other move - no redo
+                return legal[i];
+            }
+            position.unmakeMove();
+        }
+        lost = true;
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,84 @@
+package com.krystian.checkers.gameMechanics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class LatencyHistogram { //HDR-style: exact below 64 us, then 32 buckets per power of two (about 3% error)
+
+    private final static int SUB_BUCKETS = 32;
+    private final static int LINEAR = 2 * SUB_BUCKETS; //values below this have their own bucket
+    private final static int MAGNITUDES = 26; //up to 2^32 us - over an hour
+    public final static int BUCKETS = LINEAR + MAGNITUDES * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+
+    public void record(long micros) { //no allocation - safe to call on every move
+        if(micros < 0) micros = 0;
+        counts[index(micros)]++;
+        total++;
+        if(micros > max) max = micros;
+    }
+
+    public void add(LatencyHistogram histogram) {
+        for(int i=0; i<BUCKETS; i++) counts[i] += histogram.counts[i];
+        total += histogram.total;
+        max = Math.max(max, histogram.max);
+    }
+
+    public long getCount() { return total; }
+    public long getMax() { return max; }
+
+    public long percentile(double percent) { //highest value of the bucket where this percent of samples is reached
+        if(total == 0) return 0;
+        long wanted = Math.max(1, (long) Math.ceil(total * percent / 100));
+        long seen = 0;
+        for(int i=0; i<BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= wanted) return Math.min(max, highest(i));
+        }
+        return max;
+    }
+
+    public void write(DataOutputStream out) throws IOException { //only the buckets in use: count, then (index, value) pairs
+        int used = 0;
+        for(long count : counts) if(count != 0) used++;
+        out.writeShort(used);
+        out.writeLong(max);
+        for(int i=0; i<BUCKETS; i++) {
+            if(counts[i] == 0) continue;
+            out.writeShort(i);
+            out.writeLong(counts[i]);
+        }
+    }
+
+    public static LatencyHistogram read(DataInputStream in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int used = in.readUnsignedShort();
+        histogram.max = in.readLong();
+        for(int i=0; i<used; i++) {
+            int index = in.readUnsignedShort();
+            long count = in.readLong();
+            if(index >= BUCKETS) throw new IOException("Bad bucket " + index);
+            histogram.counts[index] = count;
+            histogram.total += count;
+        }
+        return histogram;
+    }
+
+    static int index(long value) {
+        if(value < LINEAR) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - 5; //value >> magnitude is in [32, 64)
+        if(magnitude > MAGNITUDES) return BUCKETS - 1;
+        return LINEAR + (magnitude - 1) * SUB_BUCKETS + (int) (value >> magnitude) - SUB_BUCKETS;
+    }
+
+    static long highest(int index) {
+        if(index < LINEAR) return index;
+        int magnitude = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << magnitude) - 1;
+    }
+}
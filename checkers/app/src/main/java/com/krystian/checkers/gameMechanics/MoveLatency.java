@@ -0,0 +1,113 @@
+package com.krystian.checkers.gameMechanics;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class MoveLatency { //from the player's click to the cpu move on screen, split into phases - one object per game
+
+    public final static int TOTAL = 0;
+    public final static int SEARCH = 1; //game tree and engine
+    public final static int APPLY = 2; //making the chosen move on the board
+    public final static int DATABASE = 3; //journaling the ply on the main thread
+    public final static int RENDER = 4; //tiles changed until the frame is about to be drawn
+    public final static int PHASES = 5;
+    private final static int VERSION = 1;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES];
+    private long clickNanos;
+    private long searchNanos; //start of the current phase of the cpu move; 0 - no cpu move measured now
+    private long applyNanos;
+    private long drawNanos;
+    private long databaseNanos; //time in database during applying or drawing - not counted there
+    private boolean waitingForFrame;
+
+    public MoveLatency() {
+        for(int i=0; i<PHASES; i++) histograms[i] = new LatencyHistogram();
+    }
+
+    public LatencyHistogram get(int phase) { return histograms[phase]; }
+
+    public void clicked() {
+        clickNanos = System.nanoTime();
+    }
+
+    public void searchStarted() {
+        searchNanos = System.nanoTime();
+        applyNanos = drawNanos = databaseNanos = 0;
+    }
+
+    public void moveChosen() {
+        if(searchNanos == 0) return;
+        applyNanos = System.nanoTime();
+        record(SEARCH, applyNanos - searchNanos);
+    }
+
+    public void boardChanged(View board) { //tiles of the cpu move are set - Android will draw them after this message
+        if(applyNanos == 0 || drawNanos != 0) return;
+        drawNanos = System.nanoTime();
+        record(APPLY, drawNanos - applyNanos - databaseNanos);
+        databaseNanos = 0;
+        if(waitingForFrame) return;
+        waitingForFrame = true;
+        final ViewTreeObserver observer = board.getViewTreeObserver();
+        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if(observer.isAlive()) observer.removeOnPreDrawListener(this);
+                frameDrawn();
+                return true;
+            }
+        });
+    }
+
+    public long databaseStarted() {
+        return System.nanoTime();
+    }
+
+    public void databaseFinished(long start) {
+        long elapsed = System.nanoTime() - start;
+        record(DATABASE, elapsed);
+        if(applyNanos != 0) databaseNanos += elapsed;
+    }
+
+    private void frameDrawn() {
+        waitingForFrame = false;
+        if(drawNanos == 0) return;
+        long now = System.nanoTime();
+        record(RENDER, now - drawNanos - databaseNanos);
+        if(clickNanos != 0 && clickNanos < searchNanos) record(TOTAL, now - clickNanos);
+        searchNanos = applyNanos = drawNanos = databaseNanos = 0;
+    }
+
+    private void record(int phase, long nanos) {
+        histograms[phase].record(nanos / 1000);
+    }
+
+    public byte[] toBytes() { //for the LATENCY column of GAMES
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeByte(PHASES);
+            for(LatencyHistogram histogram : histograms) histogram.write(out);
+            out.close();
+        } catch(IOException e) {
+            throw new IllegalStateException(e); //not possible in memory
+        }
+        return bytes.toByteArray();
+    }
+
+    public static LatencyHistogram[] fromBytes(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if(in.readByte() != VERSION) throw new IOException("Unknown latency version");
+        LatencyHistogram[] histograms = new LatencyHistogram[in.readByte()];
+        for(int i=0; i<histograms.length; i++) histograms[i] = LatencyHistogram.read(in);
+        return histograms;
+    }
+}
@@ -0,0 +1,94 @@
+package com.krystian.checkers.gameMechanics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValues_haveOwnBuckets() throws Exception {
+        for(long value=0; value<64; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.highest(LatencyHistogram.index(value)));
+        }
+    }
+
+    @Test
+    public void bucket_holdsItsValue() throws Exception { //and is at most about 3% wide
+        for(long value=64; value<(1L << 31); value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highest(index);
+            assertTrue(value <= highest);
+            assertTrue(index == 0 || LatencyHistogram.highest(index - 1) < value);
+            assertTrue(highest - value <= value / 32);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE)); //longer ones in the last bucket
+    }
+
+    @Test
+    public void percentiles_ofKnownSamples() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i=1; i<=100; i++) histogram.record(i * 1000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000, histogram.percentile(50), 50000 / 32);
+        assertEquals(90000, histogram.percentile(90), 90000 / 32);
+        assertEquals(100000, histogram.percentile(100)); //never above the max
+        assertEquals(0, new LatencyHistogram().percentile(50));
+    }
+
+    @Test
+    public void add_mergesCountsAndMax() throws Exception {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for(int i=0; i<10; i++) first.record(10);
+        second.record(5000);
+        first.add(second);
+        assertEquals(11, first.getCount());
+        assertEquals(5000, first.getMax());
+        assertEquals(10, first.percentile(90));
+        assertEquals(5000, first.percentile(100));
+    }
+
+    @Test
+    public void writtenHistogram_readsBackTheSame() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(700);
+        histogram.record(700);
+        histogram.record(2500000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.write(new DataOutputStream(bytes));
+        LatencyHistogram read = LatencyHistogram.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(histogram.getCount(), read.getCount());
+        assertEquals(histogram.getMax(), read.getMax());
+        for(double percent : new double[]{1, 25, 50, 75, 100})
+            assertEquals(histogram.percentile(percent), read.percentile(percent));
+    }
+
+    @Test
+    public void moveLatency_roundTripsEveryPhase() throws Exception {
+        MoveLatency latency = new MoveLatency();
+        for(int phase=0; phase<MoveLatency.PHASES; phase++)
+            for(int i=0; i<=phase; i++) latency.get(phase).record(1000 * (phase + 1));
+        LatencyHistogram[] read = MoveLatency.fromBytes(latency.toBytes());
+        assertEquals(MoveLatency.PHASES, read.length);
+        for(int phase=0; phase<MoveLatency.PHASES; phase++) {
+            assertEquals(phase + 1, read[phase].getCount());
+            assertEquals(1000 * (phase + 1), read[phase].getMax());
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void unknownVersion_isRejected() throws Exception {
+        byte[] data = new MoveLatency().toBytes();
+        data[0]++;
+        MoveLatency.fromBytes(data);
+    }
+}
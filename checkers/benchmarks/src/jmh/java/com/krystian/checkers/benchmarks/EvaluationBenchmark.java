@@ -0,0 +1,37 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Evaluator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EvaluationBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Position board;
+    private final Evaluator evaluator = new Evaluator();
+
+    @Setup
+    public void setup() {
+        board = Positions.get(position, true);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(board);
+    }
+}
@@ -0,0 +1,34 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KingCaptureBenchmark { //one board of its own - not run again for every MoveGeneratorBenchmark position
+
+    private Position kingCaptures;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        kingCaptures = Positions.get("kingCaptures", true);
+    }
+
+    @Benchmark
+    public int kingCaptureTree() { //queen takes in every direction and every landing square - the slowest part of the rules
+        return generator.generateCaptures(kingCaptures, moves);
+    }
+}
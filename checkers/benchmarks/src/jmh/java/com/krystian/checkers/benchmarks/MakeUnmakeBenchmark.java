@@ -0,0 +1,45 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MakeUnmakeBenchmark { //every legal move made and taken back once per operation
+
+    @Param({"opening", "middlegame", "endgame", "kingCaptures"})
+    public String position;
+
+    private Position board;
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+    private int count;
+
+    @Setup
+    public void setup() {
+        board = Positions.get(position, true);
+        count = new MoveGenerator().generate(board, moves);
+    }
+
+    @Benchmark
+    public long makeUnmake() {
+        long hashes = 0;
+        for(int i=0; i<count; i++) {
+            board.makeMove(moves[i]);
+            hashes ^= board.getHash();
+            board.unmakeMove();
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoveGeneratorBenchmark { //generation only - nothing is made on the board
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Position board;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        board = Positions.get(position, true);
+    }
+
+    @Benchmark
+    public int quietMoves() {
+        return generator.generateQuietMoves(board, moves);
+    }
+
+    @Benchmark
+    public int legalMoves() { //looks for takes first, as the game does
+        return generator.generate(board, moves);
+    }
+}
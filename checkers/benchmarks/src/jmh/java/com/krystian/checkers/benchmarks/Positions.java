@@ -0,0 +1,30 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.Position;
+
+public final class Positions { //representative boards, written like BOARD in GAMES: '-' brown, '=' brown queen, '1' white, '2' white queen
+
+    public final static String OPENING = "--------------------" + "0000000000" + "11111111111111111111";
+    public final static String MIDDLEGAME = "------000-00000--00-00-00-100000001010111110111111";
+    public final static String ENDGAME = "0000000=00000-0000000000=0000000200000000100000002"; //kings move a lot, few pieces
+    public final static String KING_CAPTURES = "00000000--0-000000--0200000000---000000-0000002000"; //nine pawns in one take, several ways
+
+    private Positions() {}
+
+    public static Position get(String name, boolean whiteToMove) {
+        if(name.equals("opening")) return fromBoardState(OPENING, whiteToMove);
+        if(name.equals("middlegame")) return fromBoardState(MIDDLEGAME, whiteToMove);
+        if(name.equals("endgame")) return fromBoardState(ENDGAME, whiteToMove);
+        if(name.equals("kingCaptures")) return fromBoardState(KING_CAPTURES, whiteToMove);
+        throw new IllegalArgumentException("No such position: " + name);
+    }
+
+    public static Position fromBoardState(String state, boolean whiteToMove) {
+        int[] tiles = new int[state.length()];
+        for(int i=0; i<tiles.length; i++) {
+            char c = state.charAt(i);
+            tiles[i] = c == '-' ? -1 : c == '=' ? -2 : c - '0';
+        }
+        return Position.fromTiles(tiles, whiteToMove);
+    }
+}
@@ -0,0 +1,47 @@
+package com.krystian.checkers.benchmarks;
+
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.TranspositionTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark { //fixed depth from an empty table - the time one cpu move takes without tablebases and book
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    @Param({"4", "6", "8"})
+    public int depth;
+
+    private Position board;
+    private final Search search = new Search(new TranspositionTable(16)); //as in CpuPlayer
+
+    @Setup
+    public void setup() {
+        board = Positions.get(position, false);
+    }
+
+    @Setup(Level.Invocation) //per call setup is only fair when a call takes milliseconds, as here
+    public void clearTable() {
+        search.getTable().clear();
+    }
+
+    @Benchmark
+    public long search() {
+        return search.findBestMove(board, depth);
+    }
+}
@@ -0,0 +1,70 @@
+/*===========BIT INDEXES: 0-49; SQUARES IN NOTATION (AS IN GameActivity): 1-50==========
+
+                                                 brown
+                                |   | 1 |   | 2 |   | 3 |   | 4 |   | 5 |
+                                | 6 |   | 7 |   | 8 |   | 9 |   | 10|   |
+                                |   | 11|   | 12|   | 13|   | 14|   | 15|
+                                | 16|   | 17|   | 18|   | 19|   | 20|   |
+                                |   | 21|   | 22|   | 23|   | 24|   | 25|
+                                | 26|   | 27|   | 28|   | 29|   | 30|   |
+                                |   | 31|   | 32|   | 33|   | 34|   | 35|
+                                | 36|   | 37|   | 38|   | 39|   | 40|   |
+                                |   | 41|   | 42|   | 43|   | 44|   | 45|
+                                | 46|   | 47|   | 48|   | 49|   | 50|   |
+                                                  white
+
+    Square n is bit (n-1) of a long, so a whole side fits in one mask. Everything here is precomputed
+    once - move generation only looks things up.
+    */
+
+package com.krystian.checkers.engine;
+
+public final class Board {
+
+    public final static int SQUARES = 50;
+    public final static long ALL_SQUARES = (1L << SQUARES) - 1;
+    public final static long WHITE_PROMOTION = 0x1FL; //squares 1-5
+    public final static long BROWN_PROMOTION = 0x1FL << 45; //squares 46-50
+
+    public final static int UP_LEFT = 0; //directions from white's perspective
+    public final static int UP_RIGHT = 1;
+    public final static int DOWN_LEFT = 2;
+    public final static int DOWN_RIGHT = 3;
+
+    public final static int[][] NEIGHBOUR = new int[4][SQUARES]; //-1 when the edge is reached
+    public final static int[][][] RAY = new int[4][SQUARES][]; //every square in a direction up to the edge
+
+    static {
+        int[] rowStep = {-1, -1, 1, 1};
+        int[] columnStep = {-1, 1, -1, 1};
+        for(int dir=0; dir<4; dir++) {
+            for(int sq=0; sq<SQUARES; sq++) {
+                int[] ray = new int[9];
+                int length = 0;
+                int row = row(sq);
+                int column = column(sq);
+                while(true) {
+                    row += rowStep[dir];
+                    column += columnStep[dir];
+                    if(row < 0 || row > 9 || column < 0 || column > 9) break;
+                    ray[length++] = 5 * row + column / 2;
+                }
+                RAY[dir][sq] = new int[length];
+                System.arraycopy(ray, 0, RAY[dir][sq], 0, length);
+                NEIGHBOUR[dir][sq] = length > 0 ? ray[0] : -1;
+            }
+        }
+    }
+
+    private Board() {}
+
+    public static int row(int sq) { return sq / 5; } //0 - brown's back row, 9 - white's back row
+    public static int column(int sq) { return 2 * (sq % 5) + (row(sq) % 2 == 0 ? 1 : 0); }
+
+    public static int square(int index) { return index + 1; } //bit index -> notation
+    public static int index(int square) { return square - 1; }
+
+    public static long flip(long mask) { //rotate the board by 180 degrees: square n -> 51 - n
+        return Long.reverse(mask) >>> (64 - SQUARES);
+    }
+}
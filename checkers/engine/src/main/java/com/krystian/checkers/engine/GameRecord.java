@@ -0,0 +1,116 @@
+package com.krystian.checkers.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class GameRecord { //moves of one game; stored as a header, the start position as four bitmasks and one byte per ply
+
+    public final static int VERSION = 1; //a new move generation order needs a new version - codes are indexes into it
+    public final static int UNFINISHED = 2; //result of a game still going on; otherwise Pdn.WHITE_WON, DRAW or BROWN_WON
+    public final static int HEADER_SIZE = 1 + 1 + 1 + 2 + 4 * 8; //version, flags, result, plies, bitmasks
+    private final static int WHITE_TO_MOVE = 1;
+
+    private final Position start;
+    private long[] moves = new long[64];
+    private int count;
+    private int result = UNFINISHED;
+
+    public GameRecord(Position start) {
+        this.start = new Position(start);
+    }
+
+    public static GameRecord initial() { return new GameRecord(Position.initial()); }
+
+    public int getMoveCount() { return count; }
+    public long getMove(int ply) { return moves[ply]; }
+    public int getResult() { return result; }
+    public void setResult(int result) { this.result = result; }
+    public Position getStart() { return new Position(start); }
+
+    public void add(long move) {
+        if(count == moves.length) {
+            long[] bigger = new long[moves.length * 2];
+            System.arraycopy(moves, 0, bigger, 0, count);
+            moves = bigger;
+        }
+        moves[count++] = move;
+    }
+
+    public void truncate(int plies) { //moves taken back - the game goes on after this many
+        if(plies < count) count = Math.max(0, plies);
+    }
+
+    public Position positionAt(int ply) { //after this many moves, with history - repetitions can be seen
+        Position position = getStart();
+        for(int i=0; i<ply && i<count; i++) position.makeMove(moves[i]);
+        return position;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (start.getWhiteToMove() ? WHITE_TO_MOVE : 0));
+        buffer.put((byte) result);
+        buffer.putShort((short) count);
+        buffer.putLong(start.getWhiteMen()).putLong(start.getWhiteKings());
+        buffer.putLong(start.getBrownMen()).putLong(start.getBrownKings());
+        MoveGenerator generator = new MoveGenerator();
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        Position position = getStart();
+        for(int i=0; i<count; i++) {
+            int index = indexOf(legal, generator.generate(position, legal), moves[i]);
+            if(index < 0) throw new IllegalStateException("Illegal move at ply " + i); //add() takes only played moves
+            buffer.put((byte) index);
+            position.makeMove(moves[i]);
+        }
+        return buffer.array();
+    }
+
+    public static GameRecord fromBytes(byte[] data) throws IOException {
+        if(data == null || data.length < HEADER_SIZE) throw new IOException("Game record too short");
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int version = buffer.get();
+        if(version != VERSION) throw new IOException("Unknown game record version " + version);
+        boolean whiteToMove = (buffer.get() & WHITE_TO_MOVE) != 0;
+        int result = buffer.get();
+        int plies = buffer.getShort() & 0xFFFF;
+        Position start = new Position();
+        start.set(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), whiteToMove);
+        if(buffer.remaining() < plies) throw new IOException("Game record cut after " + buffer.remaining() + " plies");
+
+        GameRecord record = new GameRecord(start);
+        record.result = result;
+        MoveGenerator generator = new MoveGenerator();
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        for(int i=0; i<plies; i++) {
+            int index = buffer.get() & 0xFF;
+            if(index >= generator.generate(start, legal)) throw new IOException("Illegal move at ply " + i);
+            record.add(legal[index]);
+            start.makeMove(legal[index]);
+        }
+        return record;
+    }
+
+    public static GameRecord fromNotation(String white, String brown) { //old '#' separated columns; a damaged one ends where it stops being legal
+        String[] whiteMoves = white == null ? new String[0] : white.split("#");
+        String[] brownMoves = brown == null ? new String[0] : brown.split("#");
+        GameRecord record = initial();
+        MoveGenerator generator = new MoveGenerator();
+        Position position = Position.initial();
+        for(int ply=0; ply<whiteMoves.length + brownMoves.length; ply++) {
+            String[] side = ply % 2 == 0 ? whiteMoves : brownMoves;
+            if(ply / 2 >= side.length || side[ply / 2].isEmpty()) break;
+            long move = generator.parse(position, side[ply / 2]);
+            if(move == Move.NONE) break;
+            record.add(move);
+            position.makeMove(move);
+        }
+        return record;
+    }
+
+    private static int indexOf(long[] list, int count, long move) {
+        for(int i=0; i<count; i++)
+            if(list[i] == move) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.krystian.checkers.engine;
+
+import com.krystian.checkers.engine.time.GameClock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class GameSnapshot { //game being played in a few hundred bytes: its GameRecord and the clock, if there is one
+
+    public final static int VERSION = 1;
+    private final static int HAS_CLOCK = 1;
+
+    private final GameRecord record;
+    private final GameClock clock; //null in untimed games
+
+    public GameSnapshot(GameRecord record, GameClock clock) {
+        this.record = record;
+        this.clock = clock;
+    }
+
+    public GameRecord getRecord() { return record; }
+    public GameClock getClock() { return clock; }
+
+    public byte[] toBytes(long now) { //version, flags, record length, record, clock
+        byte[] game = record.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 4 + game.length + (clock == null ? 0 : GameClock.STATE_SIZE));
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (clock == null ? 0 : HAS_CLOCK));
+        buffer.putInt(game.length);
+        buffer.put(game);
+        if(clock != null) clock.write(buffer, now);
+        return buffer.array();
+    }
+
+    public static GameSnapshot fromBytes(byte[] data) throws IOException {
+        if(data == null || data.length < 6) throw new IOException("Game snapshot too short");
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int version = buffer.get();
+        if(version != VERSION) throw new IOException("Unknown game snapshot version " + version);
+        boolean hasClock = (buffer.get() & HAS_CLOCK) != 0;
+        int length = buffer.getInt();
+        if(length < 0 || length > buffer.remaining() - (hasClock ? GameClock.STATE_SIZE : 0))
+            throw new IOException("Game snapshot cut");
+        byte[] game = new byte[length];
+        buffer.get(game);
+        GameRecord record = GameRecord.fromBytes(game);
+        return new GameSnapshot(record, hasClock ? GameClock.read(buffer) : null);
+    }
+}
@@ -0,0 +1,55 @@
+package com.krystian.checkers.engine;
+
+public class KeyframeIndex { //any ply of a recorded game: a full board every few plies, moves replayed from the one before
+
+    public final static int DEFAULT_INTERVAL = 16;
+
+    private final GameRecord record;
+    private final int interval;
+    private final long[] frames; //four bitmasks per keyframe
+    private final boolean[] whiteToMove;
+    private final String[] notation; //move played from each ply
+
+    public KeyframeIndex(GameRecord record) {
+        this(record, DEFAULT_INTERVAL);
+    }
+
+    public KeyframeIndex(GameRecord record, int interval) { //one replay of the whole game
+        this.record = record;
+        this.interval = interval;
+        int plies = record.getMoveCount();
+        int count = plies / interval + 1;
+        frames = new long[4 * count];
+        whiteToMove = new boolean[count];
+        notation = new String[plies];
+        Position position = record.getStart();
+        for(int ply=0; ply<=plies; ply++) {
+            if(ply % interval == 0) {
+                int frame = ply / interval;
+                frames[4 * frame] = position.getWhiteMen();
+                frames[4 * frame + 1] = position.getWhiteKings();
+                frames[4 * frame + 2] = position.getBrownMen();
+                frames[4 * frame + 3] = position.getBrownKings();
+                whiteToMove[frame] = position.getWhiteToMove();
+            }
+            if(ply == plies) break;
+            notation[ply] = MoveGenerator.notation(position, record.getMove(ply));
+            position.makeMove(record.getMove(ply));
+        }
+    }
+
+    public int getPlyCount() { return record.getMoveCount(); } //positions are 0 to this
+    public GameRecord getRecord() { return record; }
+    public String getNotation(int ply) { return notation[ply]; }
+    public boolean whiteMoves(int ply) { return whiteToMove[0] == (ply % 2 == 0); } //whose move is played from this ply
+
+    public Position positionAt(int ply) { //at most interval - 1 moves replayed; history starts at the keyframe
+        ply = Math.max(0, Math.min(ply, record.getMoveCount()));
+        int frame = ply / interval;
+        Position position = new Position();
+        position.set(frames[4 * frame], frames[4 * frame + 1], frames[4 * frame + 2], frames[4 * frame + 3],
+                whiteToMove[frame]);
+        for(int i=frame * interval; i<ply; i++) position.makeMove(record.getMove(i));
+        return position;
+    }
+}
@@ -0,0 +1,22 @@
+package com.krystian.checkers.engine;
+
+public final class Move { //a move is a single long: captured pieces (50 bits) | destination (6 bits) | origin (6 bits)
+
+    public final static long NONE = 0; //a1-a1 without taking can't be legal, so zero is free
+
+    private Move() {}
+
+    public static long create(int from, int to, long captured) {
+        return (captured << 12) | ((long) to << 6) | from;
+    }
+
+    public static int from(long move) { return (int) (move & 63); } //bit indexes, not notation squares
+    public static int to(long move) { return (int) ((move >>> 6) & 63); }
+    public static long captured(long move) { return move >>> 12; }
+    public static boolean isCapture(long move) { return (move >>> 12) != 0; }
+    public static int captureCount(long move) { return Long.bitCount(move >>> 12); }
+
+    public static String toString(long move) { //short notation without intermediate squares, e.g. 32-28 or 33x22
+        return Board.square(from(move)) + (isCapture(move) ? "x" : "-") + Board.square(to(move));
+    }
+}
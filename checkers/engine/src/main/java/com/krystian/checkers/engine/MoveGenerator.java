@@ -0,0 +1,208 @@
+package com.krystian.checkers.engine;
+
+public class MoveGenerator { //legal moves by the same rules as GameActivity; one generator per thread - it keeps state
+
+    public final static int MAX_MOVES = 256;
+
+    private long own; //pieces of the side to move
+    private long opponent;
+    private long occupied; //moving piece is lifted from its square, taken pieces stay until the move ends
+    private int origin;
+    private long[] moves;
+    private int count;
+    private int longestTake;
+
+    private int[] pathStack = new int[Board.SQUARES]; //only for path()
+    private int[] foundPath;
+    private long searchedMove;
+
+    public int generate(Position position, long[] moves) { //taking is mandatory and the longest take is mandatory
+        int takes = generateCaptures(position, moves);
+        if(takes > 0) return takes;
+        return generateQuietMoves(position, moves);
+    }
+
+    public int generateCaptures(Position position, long[] moves) {
+        prepare(position, moves);
+        long men = position.getWhiteToMove() ? position.getWhiteMen() : position.getBrownMen();
+        long kings = position.getWhiteToMove() ? position.getWhiteKings() : position.getBrownKings();
+        while(men != 0) {
+            origin = Long.numberOfTrailingZeros(men);
+            men &= men - 1;
+            occupied = position.getOccupied() & ~(1L << origin);
+            manCaptures(origin, 0, 0);
+        }
+        while(kings != 0) {
+            origin = Long.numberOfTrailingZeros(kings);
+            kings &= kings - 1;
+            occupied = position.getOccupied() & ~(1L << origin);
+            kingCaptures(origin, 0, 0);
+        }
+        return count;
+    }
+
+    public int generateQuietMoves(Position position, long[] moves) {
+        prepare(position, moves);
+        long empty = ~position.getOccupied() & Board.ALL_SQUARES;
+        long men = position.getWhiteToMove() ? position.getWhiteMen() : position.getBrownMen();
+        long kings = position.getWhiteToMove() ? position.getWhiteKings() : position.getBrownKings();
+        int firstDirection = position.getWhiteToMove() ? Board.UP_LEFT : Board.DOWN_LEFT; //regular pawns only go forward
+        while(men != 0) {
+            int from = Long.numberOfTrailingZeros(men);
+            men &= men - 1;
+            for(int dir=firstDirection; dir<firstDirection+2; dir++) {
+                int to = Board.NEIGHBOUR[dir][from];
+                if(to >= 0 && (empty & (1L << to)) != 0) moves[count++] = Move.create(from, to, 0);
+            }
+        }
+        while(kings != 0) {
+            int from = Long.numberOfTrailingZeros(kings);
+            kings &= kings - 1;
+            for(int dir=0; dir<4; dir++) {
+                for(int to : Board.RAY[dir][from]) { //queens can move through the entire diagonal
+                    if((empty & (1L << to)) == 0) break;
+                    moves[count++] = Move.create(from, to, 0);
+                }
+            }
+        }
+        return count;
+    }
+
+    public boolean hasCapture(Position position) { //cheaper than generating - stops at the first take found
+        prepare(position, null);
+        long pieces = position.getWhiteToMove() ? position.getWhite() : position.getBrown();
+        long kings = position.getWhiteToMove() ? position.getWhiteKings() : position.getBrownKings();
+        long empty = ~position.getOccupied() & Board.ALL_SQUARES;
+        while(pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            boolean king = (kings & (1L << from)) != 0;
+            for(int dir=0; dir<4; dir++) {
+                int[] ray = Board.RAY[dir][from];
+                int i = 0;
+                if(king) while(i < ray.length && (empty & (1L << ray[i])) != 0) i++;
+                if(i + 1 < ray.length && (opponent & (1L << ray[i])) != 0 && (empty & (1L << ray[i + 1])) != 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public int[] path(Position position, long move) { //landing squares (1-50) of a take, e.g. for 28x19x10: {19, 10}
+        if(!Move.isCapture(move)) return new int[]{Board.square(Move.to(move))};
+        prepare(position, null);
+        origin = Move.from(move);
+        occupied = position.getOccupied() & ~(1L << origin);
+        searchedMove = move;
+        foundPath = null;
+        boolean king = ((position.getWhiteKings() | position.getBrownKings()) & (1L << origin)) != 0;
+        searchPath(origin, 0, 0, king);
+        return foundPath;
+    }
+
+    public static String notation(Position position, long move) { //as in GameActivity: 32-28, 28x19x10, start x end for kings too
+        if(!Move.isCapture(move)) return Move.toString(move);
+        String text = Integer.toString(Board.square(Move.from(move)));
+        for(int square : new MoveGenerator().path(position, move)) text += "x" + square;
+        return text;
+    }
+
+    public long parse(Position position, String notation) { //32-28, 28x19x10, 28(D)x10, 45-50=D; Move.NONE if not legal
+        String[] squares = notation.replace("(D)", "").replace("=D", "").trim().split("[-x]");
+        int[] path = new int[squares.length];
+        try {
+            for(int i=0; i<squares.length; i++) path[i] = Integer.parseInt(squares[i].trim());
+        } catch(NumberFormatException e) {
+            return Move.NONE;
+        }
+        if(path.length < 2) return Move.NONE;
+        long[] list = new long[MAX_MOVES];
+        int count = generate(position, list);
+        long found = Move.NONE;
+        for(int i=0; i<count; i++) {
+            long move = list[i];
+            if(Board.square(Move.from(move)) != path[0] || Board.square(Move.to(move)) != path[path.length - 1]) continue;
+            if(path.length == 2 || !Move.isCapture(move)) return move; //start x end is enough unless two takes share it
+            if(found == Move.NONE) found = move; //a queen may land elsewhere on the way - same take anyway
+            int[] landing = path(position, move);
+            if(landing.length == path.length - 1) {
+                boolean same = true;
+                for(int j=0; j<landing.length; j++)
+                    if(landing[j] != path[j + 1]) same = false;
+                if(same) return move;
+            }
+        }
+        return found;
+    }
+
+    private void prepare(Position position, long[] moves) {
+        this.moves = moves;
+        this.count = 0;
+        this.longestTake = 0;
+        this.own = position.getWhiteToMove() ? position.getWhite() : position.getBrown();
+        this.opponent = position.getWhiteToMove() ? position.getBrown() : position.getWhite();
+    }
+
+    private void manCaptures(int sq, long captured, int length) { //regular pawns take forward and backward
+        boolean extended = false;
+        for(int dir=0; dir<4; dir++) {
+            int over = Board.NEIGHBOUR[dir][sq];
+            if(over < 0 || (opponent & ~captured & (1L << over)) == 0) continue;
+            int land = Board.NEIGHBOUR[dir][over];
+            if(land < 0 || (occupied & (1L << land)) != 0) continue;
+            extended = true;
+            manCaptures(land, captured | (1L << over), length + 1);
+        }
+        if(!extended && length > 0) addCapture(sq, captured, length);
+    }
+
+    private void kingCaptures(int sq, long captured, int length) { //no pawn can be jumped twice - it stays on the board
+        boolean extended = false;
+        for(int dir=0; dir<4; dir++) {
+            int[] ray = Board.RAY[dir][sq];
+            int i = 0;
+            while(i < ray.length && (occupied & (1L << ray[i])) == 0) i++;
+            if(i >= ray.length - 1 || (opponent & ~captured & (1L << ray[i])) == 0) continue;
+            long taken = captured | (1L << ray[i]);
+            for(int j=i+1; j<ray.length && (occupied & (1L << ray[j])) == 0; j++) {
+                extended = true;
+                kingCaptures(ray[j], taken, length + 1);
+            }
+        }
+        if(!extended && length > 0) addCapture(sq, captured, length);
+    }
+
+    private void addCapture(int to, long captured, int length) {
+        if(length < longestTake) return;
+        if(length > longestTake) { //longest take is mandatory - shorter ones found before are dropped
+            longestTake = length;
+            count = 0;
+        }
+        long move = Move.create(origin, to, captured);
+        for(int i=0; i<count; i++)
+            if(moves[i] == move) return; //same pieces taken by a different route is the same move
+        if(count < moves.length) moves[count++] = move;
+    }
+
+    private void searchPath(int sq, long captured, int length, boolean king) {
+        if(foundPath != null) return;
+        if(captured == Move.captured(searchedMove) && sq == Move.to(searchedMove)) {
+            foundPath = new int[length];
+            for(int i=0; i<length; i++) foundPath[i] = Board.square(pathStack[i]);
+            return;
+        }
+        for(int dir=0; dir<4; dir++) {
+            int[] ray = Board.RAY[dir][sq];
+            int i = 0;
+            if(king) while(i < ray.length && (occupied & (1L << ray[i])) == 0) i++;
+            if(i >= ray.length - 1) continue;
+            long over = 1L << ray[i];
+            if((opponent & ~captured & over) == 0 || (Move.captured(searchedMove) & over) == 0) continue;
+            for(int j=i+1; j<ray.length && (occupied & (1L << ray[j])) == 0; j++) {
+                pathStack[length] = ray[j];
+                searchPath(ray[j], captured | over, length + 1, king);
+                if(!king) break; //regular pawn lands right behind
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.krystian.checkers.engine;
+
+import java.io.IOException;
+
+public final class Pdn { //Portable Draughts Notation - white is white, brown is "Black"; GameType 20 is international draughts
+
+    public final static int WHITE_WON = 1; //results as seen by white
+    public final static int DRAW = 0;
+    public final static int BROWN_WON = -1;
+
+    private Pdn() {}
+
+    public static String result(int result) {
+        if(result == GameRecord.UNFINISHED) return "*";
+        return result == WHITE_WON ? "2-0" : result == BROWN_WON ? "0-2" : "1-1";
+    }
+
+    public static int parseResult(String result) { //Integer.MIN_VALUE if it's not one
+        if(result.equals("2-0")) return WHITE_WON;
+        if(result.equals("1-1")) return DRAW;
+        if(result.equals("0-2")) return BROWN_WON;
+        return Integer.MIN_VALUE;
+    }
+
+    public static void write(Appendable out, String event, String white, String brown, long[] moves, int count,
+                             int result) throws IOException { //moves from the initial position
+        GameRecord record = GameRecord.initial();
+        for(int i=0; i<count; i++) record.add(moves[i]);
+        record.setResult(result);
+        write(out, event, white, brown, record);
+    }
+
+    public static void write(Appendable out, String event, String white, String brown, GameRecord record)
+            throws IOException {
+        int result = record.getResult();
+        out.append("[Event \"").append(event).append("\"]\n");
+        out.append("[White \"").append(white).append("\"]\n");
+        out.append("[Black \"").append(brown).append("\"]\n");
+        out.append("[Result \"").append(result(result)).append("\"]\n");
+        out.append("[GameType \"20\"]\n");
+        Position position = record.getStart();
+        if(!position.sameBoard(Position.initial())) out.append("[FEN \"").append(fen(position)).append("\"]\n");
+        boolean whiteFirst = position.getWhiteToMove();
+        StringBuilder line = new StringBuilder();
+        for(int i=0; i<record.getMoveCount(); i++) {
+            long move = record.getMove(i);
+            int number = (i + (whiteFirst ? 0 : 1)) / 2 + 1;
+            String prefix = position.getWhiteToMove() ? number + ". " : i == 0 ? number + "... " : "";
+            String text = prefix + MoveGenerator.notation(position, move);
+            if(line.length() + text.length() > 79) { //PDN lines are kept under 80 characters
+                out.append(line).append('\n');
+                line.setLength(0);
+            }
+            if(line.length() > 0) line.append(' ');
+            line.append(text);
+            position.makeMove(move);
+        }
+        if(line.length() + 4 > 79) {
+            out.append(line).append('\n');
+            line.setLength(0);
+        }
+        if(line.length() > 0) line.append(' ');
+        out.append(line).append(result(result)).append("\n\n");
+    }
+
+    public static String fen(Position position) { //W:W31,32,K45:B1,2 - side to move, then the pieces of each side
+        StringBuilder fen = new StringBuilder(position.getWhiteToMove() ? "W" : "B");
+        appendSide(fen, 'W', position.getWhiteMen(), position.getWhiteKings());
+        appendSide(fen, 'B', position.getBrownMen(), position.getBrownKings());
+        return fen.toString();
+    }
+
+    public static Position parseFen(String fen) { //null if it's not one; square ranges like 31-35 are accepted
+        String[] parts = fen.trim().replace(".", "").split(":");
+        if(parts.length == 0 || !(parts[0].equals("W") || parts[0].equals("B"))) return null;
+        long[] pieces = new long[4]; //white men, white kings, brown men, brown kings
+        try {
+            for(int i=1; i<parts.length; i++) {
+                String part = parts[i].trim();
+                if(part.isEmpty()) continue;
+                int side = part.charAt(0) == 'W' ? 0 : part.charAt(0) == 'B' ? 2 : -1;
+                if(side < 0) return null;
+                for(String item : part.substring(1).split(",")) {
+                    item = item.trim();
+                    if(item.isEmpty()) continue;
+                    int kind = side;
+                    if(item.charAt(0) == 'K') {
+                        kind++;
+                        item = item.substring(1);
+                    }
+                    String[] range = item.split("-");
+                    int first = Integer.parseInt(range[0].trim());
+                    int last = range.length > 1 ? Integer.parseInt(range[1].trim()) : first;
+                    if(first < 1 || last > Board.SQUARES || first > last) return null;
+                    for(int square=first; square<=last; square++) pieces[kind] |= 1L << (square - 1);
+                }
+            }
+        } catch(NumberFormatException e) {
+            return null;
+        }
+        if((pieces[0] & pieces[1]) != 0 || ((pieces[0] | pieces[1]) & (pieces[2] | pieces[3])) != 0
+                || (pieces[2] & pieces[3]) != 0) return null; //a square used twice
+        Position position = new Position();
+        position.set(pieces[0], pieces[1], pieces[2], pieces[3], parts[0].equals("W"));
+        return position;
+    }
+
+    private static void appendSide(StringBuilder fen, char side, long men, long kings) {
+        fen.append(':').append(side);
+        boolean first = true;
+        for(int square=1; square<=Board.SQUARES; square++) {
+            long bit = 1L << (square - 1);
+            if(((men | kings) & bit) == 0) continue;
+            if(!first) fen.append(',');
+            if((kings & bit) != 0) fen.append('K');
+            fen.append(square);
+            first = false;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.krystian.checkers.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+
+public class PdnReader { //games of a PDN stream one at a time - memory doesn't grow with the file; every move is checked by the engine
+
+    public final static int BUFFER_SIZE = 1 << 16;
+    public final static int MAX_TOKEN = 1024; //longer tags and moves are cut - a damaged file can't take all memory
+    public final static int MAX_PLIES = 0xFFFF; //as many as GameRecord stores
+
+    private final Reader in;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final HashMap<String, String> tags = new HashMap<>(); //of the last game
+    private final StringBuilder token = new StringBuilder();
+    private int next = -2; //character read ahead, -2 if none
+    private long characters; //read so far
+    private int skipped;
+
+    public PdnReader(Reader in) {
+        this.in = in instanceof BufferedReader ? in : new BufferedReader(in, BUFFER_SIZE);
+    }
+
+    public String getTag(String name) { return tags.get(name); }
+    public long getCharacters() { return characters; }
+    public int getSkipped() { return skipped; } //games with an illegal move, another game type or a bad setup
+
+    public GameRecord next() throws IOException { //null at the end of the stream
+        while(true) {
+            tags.clear();
+            int c = skipSpace();
+            if(c < 0) return null;
+            while(c == '[') {
+                readTag();
+                c = skipSpace();
+            }
+            GameRecord record = start();
+            Position position = record == null ? null : record.getStart();
+            int result = GameRecord.UNFINISHED;
+            boolean ended = false;
+            while(c >= 0 && c != '[' && !ended) {
+                if(c == '{') skipPast('}');
+                else if(c == '(') skipVariation();
+                else if(c == ';' || c == '%') skipPast('\n'); //comment or escape to the end of the line
+                else {
+                    readToken(c);
+                    String text = token.toString();
+                    int parsed = text.equals("*") ? GameRecord.UNFINISHED : parseResult(text);
+                    if(parsed != Integer.MIN_VALUE) {
+                        result = parsed;
+                        ended = true;
+                    }
+                    else if(record != null) {
+                        String notation = stripNumber(text);
+                        if(!notation.isEmpty()) {
+                            long move = record.getMoveCount() < MAX_PLIES ? generator.parse(position, notation) : Move.NONE;
+                            if(move == Move.NONE) record = null; //the rest of the game is read and dropped
+                            else {
+                                record.add(move);
+                                position.makeMove(move);
+                            }
+                        }
+                    }
+                }
+                if(!ended) c = skipSpace();
+            }
+            if(c == '[') next = c; //tags of the next game
+            if(record != null && tags.isEmpty() && record.getMoveCount() == 0 && !ended) continue; //stray comment
+            if(record == null) {
+                skipped++;
+                continue;
+            }
+            if(result == GameRecord.UNFINISHED && tags.containsKey("Result")) {
+                int tagged = parseResult(tags.get("Result"));
+                if(tagged != Integer.MIN_VALUE) result = tagged;
+            }
+            record.setResult(result);
+            return record;
+        }
+    }
+
+    private GameRecord start() { //null if the game can't be played here
+        String type = tags.get("GameType");
+        if(type != null && !type.trim().startsWith("20")) return null; //20 - international draughts
+        String fen = tags.get("FEN");
+        if(fen == null) return GameRecord.initial();
+        Position start = Pdn.parseFen(fen);
+        return start == null ? null : new GameRecord(start);
+    }
+
+    private static int parseResult(String text) { //Integer.MIN_VALUE if it's not one; 1-0 and 0-1 are seen in old files
+        int result = Pdn.parseResult(text);
+        if(result != Integer.MIN_VALUE) return result;
+        if(text.equals("1-0")) return Pdn.WHITE_WON;
+        if(text.equals("0-1")) return Pdn.BROWN_WON;
+        return Integer.MIN_VALUE;
+    }
+
+    private static String stripNumber(String text) { //12.32-28, 12... and 32-28! are all moves or nothing
+        int i = 0;
+        while(i < text.length() && Character.isDigit(text.charAt(i))) i++;
+        if(i < text.length() && text.charAt(i) == '.') {
+            while(i < text.length() && text.charAt(i) == '.') i++;
+            text = text.substring(i);
+        }
+        int end = text.length();
+        while(end > 0 && (text.charAt(end - 1) == '!' || text.charAt(end - 1) == '?')) end--;
+        return text.substring(0, end);
+    }
+
+    private void readTag() throws IOException { //after '[': Name "value"]
+        token.setLength(0);
+        int c = read();
+        while(c >= 0 && c != '"' && c != ']') {
+            if(token.length() < MAX_TOKEN) token.append((char) c);
+            c = read();
+        }
+        String name = token.toString().trim();
+        token.setLength(0);
+        if(c == '"') {
+            c = read();
+            while(c >= 0 && c != '"') {
+                if(c == '\\') c = read(); //escaped quote or backslash
+                if(c >= 0 && token.length() < MAX_TOKEN) token.append((char) c);
+                c = read();
+            }
+            while(c >= 0 && c != ']') c = read();
+        }
+        if(!name.isEmpty()) tags.put(name, token.toString());
+    }
+
+    private void readToken(int c) throws IOException {
+        token.setLength(0);
+        while(c >= 0 && !Character.isWhitespace(c) && c != '{' && c != '(' && c != '[' && c != ';') {
+            if(token.length() < MAX_TOKEN) token.append((char) c);
+            c = read();
+        }
+        if(c >= 0 && !Character.isWhitespace(c)) next = c;
+    }
+
+    private void skipVariation() throws IOException { //after '('; variations may be nested and hold comments
+        int depth = 1;
+        int c;
+        while(depth > 0 && (c = read()) >= 0) {
+            if(c == '(') depth++;
+            else if(c == ')') depth--;
+            else if(c == '{') skipPast('}');
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c;
+        do c = read(); while(c >= 0 && c != end);
+    }
+
+    private int skipSpace() throws IOException {
+        int c;
+        do c = read(); while(c >= 0 && Character.isWhitespace(c));
+        return c;
+    }
+
+    private int read() throws IOException {
+        if(next != -2) {
+            int c = next;
+            next = -2;
+            return c;
+        }
+        int c = in.read();
+        if(c >= 0) characters++;
+        return c;
+    }
+}
@@ -0,0 +1,204 @@
+package com.krystian.checkers.engine;
+
+import java.util.Arrays;
+
+public class Position { //board as four bitmasks with make/unmake; every made move is kept on a stack to be taken back
+
+    public final static int DRAW_MOVES = 25; //reversible plies in a row that end the game in a draw, as in GameActivity
+
+    private long whiteMen;
+    private long whiteKings;
+    private long brownMen;
+    private long brownKings;
+    private boolean whiteToMove;
+    private long hash;
+    private int reversibleMoves; //plies in a row with only kings moving and no taking (drawCounter in GameActivity)
+
+    private int ply = 0; //made moves on the stack
+    private long[] historyWhiteMen = new long[64];
+    private long[] historyWhiteKings = new long[64];
+    private long[] historyBrownMen = new long[64];
+    private long[] historyBrownKings = new long[64];
+    private long[] historyHash = new long[64];
+    private int[] historyReversible = new int[64];
+
+    public Position() {
+        set(0, 0, 0, 0, true);
+    }
+
+    public Position(Position position) { //copy of the board only - history isn't needed in a fresh position
+        this.whiteMen = position.whiteMen;
+        this.whiteKings = position.whiteKings;
+        this.brownMen = position.brownMen;
+        this.brownKings = position.brownKings;
+        this.whiteToMove = position.whiteToMove;
+        this.hash = position.hash;
+        this.reversibleMoves = position.reversibleMoves;
+    }
+
+    public static Position initial() {
+        Position position = new Position();
+        position.set(((1L << 20) - 1) << 30, 0, (1L << 20) - 1, 0, true);
+        return position;
+    }
+
+    public static Position fromTiles(int[] isTaken, boolean whiteToMove) { //PlayableTile values: 1/2 white, -1/-2 brown
+        long wm = 0, wk = 0, bm = 0, bk = 0;
+        for(int i=0; i<Board.SQUARES; i++) {
+            if(isTaken[i] == 1) wm |= 1L << i;
+            else if(isTaken[i] == 2) wk |= 1L << i;
+            else if(isTaken[i] == -1) bm |= 1L << i;
+            else if(isTaken[i] == -2) bk |= 1L << i;
+        }
+        Position position = new Position();
+        position.set(wm, wk, bm, bk, whiteToMove);
+        return position;
+    }
+
+    public int[] toTiles() {
+        int[] isTaken = new int[Board.SQUARES];
+        for(int i=0; i<Board.SQUARES; i++) {
+            long bit = 1L << i;
+            if((whiteMen & bit) != 0) isTaken[i] = 1;
+            else if((whiteKings & bit) != 0) isTaken[i] = 2;
+            else if((brownMen & bit) != 0) isTaken[i] = -1;
+            else if((brownKings & bit) != 0) isTaken[i] = -2;
+        }
+        return isTaken;
+    }
+
+    public void set(long whiteMen, long whiteKings, long brownMen, long brownKings, boolean whiteToMove) {
+        this.whiteMen = whiteMen;
+        this.whiteKings = whiteKings;
+        this.brownMen = brownMen;
+        this.brownKings = brownKings;
+        this.whiteToMove = whiteToMove;
+        this.reversibleMoves = 0;
+        this.ply = 0; //a new board - old history doesn't lead to it
+        this.hash = Zobrist.hash(whiteMen, Zobrist.WHITE_MAN) ^ Zobrist.hash(whiteKings, Zobrist.WHITE_KING)
+                ^ Zobrist.hash(brownMen, Zobrist.BROWN_MAN) ^ Zobrist.hash(brownKings, Zobrist.BROWN_KING)
+                ^ (whiteToMove ? 0 : Zobrist.BROWN_TO_MOVE);
+    }
+
+    public long getWhiteMen() { return whiteMen; }
+    public long getWhiteKings() { return whiteKings; }
+    public long getBrownMen() { return brownMen; }
+    public long getBrownKings() { return brownKings; }
+    public long getWhite() { return whiteMen | whiteKings; }
+    public long getBrown() { return brownMen | brownKings; }
+    public long getOccupied() { return whiteMen | whiteKings | brownMen | brownKings; }
+    public boolean getWhiteToMove() { return whiteToMove; }
+    public long getHash() { return hash; }
+    public int getReversibleMoves() { return reversibleMoves; }
+    public int getPly() { return ply; }
+    public int getPieceCount() { return Long.bitCount(getOccupied()); }
+
+    public boolean isDrawByMoves() { return reversibleMoves >= DRAW_MOVES; }
+
+    public boolean isRepetition() { //same board with the same side to move since the last man move or take
+        int last = Math.max(0, ply - reversibleMoves); //nothing before an irreversible move can come back
+        for(int i=ply-2; i>=last; i-=2)
+            if(historyHash[i] == hash) return true;
+        return false;
+    }
+
+    public void makeMove(long move) {
+        if(ply == historyHash.length) growHistory();
+        historyWhiteMen[ply] = whiteMen;
+        historyWhiteKings[ply] = whiteKings;
+        historyBrownMen[ply] = brownMen;
+        historyBrownKings[ply] = brownKings;
+        historyHash[ply] = hash;
+        historyReversible[ply] = reversibleMoves;
+        ply++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long captured = Move.captured(move);
+        long fromBit = 1L << from;
+        long toBit = 1L << to; //from == to is possible - a king can take in a circle
+
+        if(whiteToMove) {
+            if((whiteMen & fromBit) != 0) {
+                whiteMen &= ~fromBit;
+                hash ^= Zobrist.PIECE[Zobrist.WHITE_MAN][from];
+                if((toBit & Board.WHITE_PROMOTION) != 0) { //pawn ENDS its move on promotion tile
+                    whiteKings |= toBit;
+                    hash ^= Zobrist.PIECE[Zobrist.WHITE_KING][to];
+                }
+                else {
+                    whiteMen |= toBit;
+                    hash ^= Zobrist.PIECE[Zobrist.WHITE_MAN][to];
+                }
+                reversibleMoves = 0;
+            }
+            else {
+                whiteKings = (whiteKings & ~fromBit) | toBit;
+                hash ^= Zobrist.PIECE[Zobrist.WHITE_KING][from] ^ Zobrist.PIECE[Zobrist.WHITE_KING][to];
+                reversibleMoves++;
+            }
+            if(captured != 0) {
+                hash ^= Zobrist.hash(brownMen & captured, Zobrist.BROWN_MAN)
+                        ^ Zobrist.hash(brownKings & captured, Zobrist.BROWN_KING);
+                brownMen &= ~captured;
+                brownKings &= ~captured;
+                reversibleMoves = 0;
+            }
+        }
+        else {
+            if((brownMen & fromBit) != 0) {
+                brownMen &= ~fromBit;
+                hash ^= Zobrist.PIECE[Zobrist.BROWN_MAN][from];
+                if((toBit & Board.BROWN_PROMOTION) != 0) {
+                    brownKings |= toBit;
+                    hash ^= Zobrist.PIECE[Zobrist.BROWN_KING][to];
+                }
+                else {
+                    brownMen |= toBit;
+                    hash ^= Zobrist.PIECE[Zobrist.BROWN_MAN][to];
+                }
+                reversibleMoves = 0;
+            }
+            else {
+                brownKings = (brownKings & ~fromBit) | toBit;
+                hash ^= Zobrist.PIECE[Zobrist.BROWN_KING][from] ^ Zobrist.PIECE[Zobrist.BROWN_KING][to];
+                reversibleMoves++;
+            }
+            if(captured != 0) {
+                hash ^= Zobrist.hash(whiteMen & captured, Zobrist.WHITE_MAN)
+                        ^ Zobrist.hash(whiteKings & captured, Zobrist.WHITE_KING);
+                whiteMen &= ~captured;
+                whiteKings &= ~captured;
+                reversibleMoves = 0;
+            }
+        }
+        whiteToMove = !whiteToMove;
+        hash ^= Zobrist.BROWN_TO_MOVE;
+    }
+
+    public void unmakeMove() {
+        ply--;
+        whiteMen = historyWhiteMen[ply];
+        whiteKings = historyWhiteKings[ply];
+        brownMen = historyBrownMen[ply];
+        brownKings = historyBrownKings[ply];
+        hash = historyHash[ply];
+        reversibleMoves = historyReversible[ply];
+        whiteToMove = !whiteToMove;
+    }
+
+    private void growHistory() {
+        int size = historyHash.length * 2;
+        historyWhiteMen = Arrays.copyOf(historyWhiteMen, size);
+        historyWhiteKings = Arrays.copyOf(historyWhiteKings, size);
+        historyBrownMen = Arrays.copyOf(historyBrownMen, size);
+        historyBrownKings = Arrays.copyOf(historyBrownKings, size);
+        historyHash = Arrays.copyOf(historyHash, size);
+        historyReversible = Arrays.copyOf(historyReversible, size);
+    }
+
+    public boolean sameBoard(Position position) {
+        return whiteMen == position.whiteMen && whiteKings == position.whiteKings && brownMen == position.brownMen
+                && brownKings == position.brownKings && whiteToMove == position.whiteToMove;
+    }
+}
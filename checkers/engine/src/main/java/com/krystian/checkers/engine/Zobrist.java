@@ -0,0 +1,33 @@
+package com.krystian.checkers.engine;
+
+import java.util.Random;
+
+public final class Zobrist { //position keys; the seed is fixed so keys stay the same between runs and devices
+
+    public final static int WHITE_MAN = 0;
+    public final static int WHITE_KING = 1;
+    public final static int BROWN_MAN = 2;
+    public final static int BROWN_KING = 3;
+
+    public final static long[][] PIECE = new long[4][Board.SQUARES];
+    public final static long BROWN_TO_MOVE;
+
+    static {
+        Random random = new Random(0x5EED_C4EC_4E25L);
+        for(int piece=0; piece<4; piece++)
+            for(int sq=0; sq<Board.SQUARES; sq++)
+                PIECE[piece][sq] = random.nextLong();
+        BROWN_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    public static long hash(long mask, int piece) {
+        long key = 0;
+        while(mask != 0) {
+            key ^= PIECE[piece][Long.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,110 @@
+package com.krystian.checkers.engine.book;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+public class OpeningBook { //sorted records in a memory-mapped file - looking a position up is a binary search, nothing is loaded
+
+    /*  int magic, byte version, int record count, long stamp (set by whoever builds the book, e.g. last game merged),
+        records sorted by hash and then move (both signed):
+        long position hash, long move, int weight, int games, int score (half points for the side to move)
+    */
+
+    public final static int MAGIC = 0x434B4F42; //"CKOB"
+    public final static int VERSION = 2;
+    public final static int HEADER_SIZE = 4 + 1 + 4 + 8;
+    public final static int RECORD_SIZE = 8 + 8 + 4 + 4 + 4;
+    public final static int MAX_BOOK_MOVES = 32; //more than enough - a position has at most a few book moves
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[] legal = new long[MoveGenerator.MAX_MOVES];
+    private final long[] bookMoves = new long[MAX_BOOK_MOVES];
+    private final int[] bookWeights = new int[MAX_BOOK_MOVES];
+
+    public OpeningBook(File file) throws IOException {
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            buffer = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, access.length());
+        } finally {
+            access.close(); //mapping stays valid after the file is closed
+        }
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION)
+            throw new IOException("Not an opening book: " + file);
+        count = buffer.getInt(5);
+        if((long) HEADER_SIZE + (long) count * RECORD_SIZE > buffer.capacity())
+            throw new IOException("Damaged opening book: " + file);
+    }
+
+    public int getRecordCount() { return count; }
+    public long getStamp() { return buffer.getLong(9); }
+
+    public long choose(Position position, Random random) {
+        return choose(position, random, 1);
+    }
+
+    public synchronized long choose(Position position, Random random, int minGames) { //weighted random book move or Move.NONE
+        int found = find(position, bookMoves, bookWeights, minGames);
+        int total = 0;
+        for(int i=0; i<found; i++) total += bookWeights[i];
+        if(total <= 0) return Move.NONE;
+        int r = random.nextInt(total);
+        for(int i=0; i<found; i++) {
+            r -= bookWeights[i];
+            if(r < 0) return bookMoves[i];
+        }
+        return Move.NONE;
+    }
+
+    public synchronized int find(Position position, long[] moves, int[] weights, int minGames) { //legal book moves and weights
+        long hash = position.getHash();
+        int low = 0;
+        int high = count;
+        while(low < high) { //first record with this hash
+            int middle = (low + high) >>> 1;
+            if(hashAt(middle) < hash) low = middle + 1;
+            else high = middle;
+        }
+        int legalCount = -1; //generated only if the position is in the book
+        int found = 0;
+        for(int i=low; i<count && hashAt(i) == hash && found < moves.length; i++) {
+            if(buffer.getInt(offset(i) + 20) < minGames) continue; //seen too few times to trust it
+            if(legalCount < 0) legalCount = generator.generate(position, legal);
+            long move = buffer.getLong(offset(i) + 8);
+            for(int j=0; j<legalCount; j++) {
+                if(legal[j] == move) { //hash collisions can't bring an illegal move
+                    moves[found] = move;
+                    weights[found++] = buffer.getInt(offset(i) + 16);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    public void read(int record, long[] values) { //hash, move, weight, games, score
+        int offset = offset(record);
+        values[0] = buffer.getLong(offset);
+        values[1] = buffer.getLong(offset + 8);
+        values[2] = buffer.getInt(offset + 16);
+        values[3] = buffer.getInt(offset + 20);
+        values[4] = buffer.getInt(offset + 24);
+    }
+
+    private long hashAt(int record) {
+        return buffer.getLong(offset(record));
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+}
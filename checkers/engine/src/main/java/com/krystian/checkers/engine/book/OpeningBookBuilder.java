@@ -0,0 +1,246 @@
+package com.krystian.checkers.engine.book;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Pdn;
+import com.krystian.checkers.engine.Position;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OpeningBookBuilder { //collects the first plies of games and writes them as an OpeningBook file
+
+    public final static int WHITE_WON = Pdn.WHITE_WON; //results as seen by white
+    public final static int DRAW = Pdn.DRAW;
+    public final static int BROWN_WON = Pdn.BROWN_WON;
+    public final static int DEFAULT_PLIES = 16;
+
+    private final int maxPlies;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[] legal = new long[MoveGenerator.MAX_MOVES];
+    private long[] hashes; //open addressing over (hash, move) - no object per entry
+    private long[] moves;
+    private int[] games; //0 - free slot
+    private int[] scores; //half points for the side to move
+    private int size;
+    private int gameCount;
+    private long stamp;
+
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+        allocate(1 << 12);
+    }
+
+    public int getGames() { return gameCount; }
+    public int getEntryCount() { return size; }
+    public long getStamp() { return stamp; }
+    public void setStamp(long stamp) { this.stamp = stamp; }
+
+    public void load(OpeningBook book) { //statistics of an existing book - new games are merged into them
+        long[] record = new long[5];
+        for(int i=0; i<book.getRecordCount(); i++) {
+            book.read(i, record);
+            add(record[0], record[1], (int) record[3], (int) record[4]);
+        }
+        stamp = book.getStamp();
+    }
+
+    public boolean addGame(long[] moves, int count, int result) { //moves from the initial position; false if one isn't legal there
+        Position position = Position.initial();
+        for(int i=0; i<count && i<maxPlies; i++) { //checked first - a game is added whole or not at all
+            int legalCount = generator.generate(position, legal);
+            int j = 0;
+            while(j < legalCount && legal[j] != moves[i]) j++;
+            if(j == legalCount) return false;
+            position.makeMove(moves[i]);
+        }
+        position = Position.initial();
+        gameCount++;
+        for(int i=0; i<count && i<maxPlies; i++) {
+            int own = position.getWhiteToMove() ? result : -result;
+            add(position.getHash(), moves[i], 1, own + 1); //win 2, draw 1, loss 0
+            position.makeMove(moves[i]);
+        }
+        return true;
+    }
+
+    public boolean addGame(String[] notation, int result) { //false if a move isn't legal - the game is left out then
+        Position position = Position.initial();
+        long[] moves = new long[notation.length];
+        for(int i=0; i<notation.length; i++) {
+            moves[i] = generator.parse(position, notation[i]);
+            if(moves[i] == Move.NONE) return false;
+            position.makeMove(moves[i]);
+        }
+        addGame(moves, moves.length, result);
+        return true;
+    }
+
+    public int write(File file, int minGames) throws IOException { //records written
+        int[] sorted = new int[size]; //slots, ordered by hash and then move
+        int count = 0;
+        for(int slot=0; slot<games.length; slot++)
+            if(games[slot] >= Math.max(1, minGames)) sorted[count++] = slot;
+        sort(sorted, 0, count);
+
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeByte(OpeningBook.VERSION);
+            out.writeInt(count);
+            out.writeLong(stamp);
+            for(int i=0; i<count; i++) {
+                int slot = sorted[i];
+                out.writeLong(hashes[slot]);
+                out.writeLong(moves[slot]);
+                out.writeInt(weight(scores[slot]));
+                out.writeInt(games[slot]);
+                out.writeInt(scores[slot]);
+            }
+        } finally {
+            out.close();
+        }
+        if(temporary.renameTo(file)) return count; //replaces the old file at once where the file system can - readers keep their mapping
+        if(file.exists() && !file.delete()) throw new IOException("Can't replace " + file);
+        if(!temporary.renameTo(file)) throw new IOException("Can't rename " + temporary);
+        return count;
+    }
+
+    public static int weight(int score) { //half points grow with games played and with results; a move that only lost stays possible
+        return 1 + score;
+    }
+
+    private void add(long hash, long move, int games, int score) {
+        if(size * 2 >= this.games.length) grow();
+        int slot = slot(hash, move);
+        if(this.games[slot] == 0) {
+            hashes[slot] = hash;
+            moves[slot] = move;
+            size++;
+        }
+        this.games[slot] += games;
+        scores[slot] += score;
+    }
+
+    private int slot(long hash, long move) { //slot of this pair or the free one where it belongs
+        int mask = games.length - 1;
+        long mixed = (hash ^ (move * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        int slot = (int) (mixed >>> 40) & mask;
+        while(games[slot] != 0 && (hashes[slot] != hash || moves[slot] != move)) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        long[] oldMoves = moves;
+        int[] oldGames = games;
+        int[] oldScores = scores;
+        allocate(oldGames.length * 2);
+        for(int i=0; i<oldGames.length; i++) {
+            if(oldGames[i] == 0) continue;
+            int slot = slot(oldHashes[i], oldMoves[i]);
+            hashes[slot] = oldHashes[i];
+            moves[slot] = oldMoves[i];
+            games[slot] = oldGames[i];
+            scores[slot] = oldScores[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        moves = new long[capacity];
+        games = new int[capacity];
+        scores = new int[capacity];
+    }
+
+    private void sort(int[] slots, int from, int to) { //insertion sort for short ranges, quicksort above
+        if(to - from < 16) {
+            for(int i=from+1; i<to; i++) {
+                int slot = slots[i];
+                int j = i;
+                while(j > from && before(slot, slots[j - 1])) {
+                    slots[j] = slots[j - 1];
+                    j--;
+                }
+                slots[j] = slot;
+            }
+            return;
+        }
+        int pivot = slots[(from + to) >>> 1];
+        int i = from;
+        int j = to - 1;
+        while(i <= j) {
+            while(before(slots[i], pivot)) i++;
+            while(before(pivot, slots[j])) j--;
+            if(i <= j) {
+                int t = slots[i];
+                slots[i++] = slots[j];
+                slots[j--] = t;
+            }
+        }
+        sort(slots, from, j + 1);
+        sort(slots, i, to);
+    }
+
+    private boolean before(int a, int b) { //same order as OpeningBook's binary search - signed hash, then move
+        if(hashes[a] != hashes[b]) return hashes[a] < hashes[b];
+        return moves[a] < moves[b];
+    }
+
+    public static void main(String[] args) throws IOException {
+        //games file: one game per line, moves separated by spaces, move numbers ("1.") skipped, result last (2-0, 1-1, 0-2)
+        File games = null;
+        File out = new File("book.bin");
+        int plies = DEFAULT_PLIES;
+        int minGames = 2;
+        boolean append = false;
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("--games")) games = new File(args[++i]);
+            else if(args[i].equals("--out")) out = new File(args[++i]);
+            else if(args[i].equals("--plies")) plies = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--min-games")) minGames = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--append")) append = true; //use with --min-games 1 - records left out are lost for later merges
+            else {
+                games = null;
+                break;
+            }
+        }
+        if(games == null) {
+            System.err.println("Usage: OpeningBookBuilder --games file [--out file] [--plies n] [--min-games n] [--append]");
+            System.exit(1);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        if(append && out.isFile()) builder.load(new OpeningBook(out)); //games already in the book aren't replayed again
+        int skipped = 0;
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(games), "UTF-8"));
+        try {
+            String line;
+            while((line = in.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("[")) continue; //PDN tags
+                List<String> moves = new ArrayList<>();
+                String[] tokens = line.split("\\s+");
+                for(int i=0; i<tokens.length - 1; i++)
+                    if(!tokens[i].endsWith(".")) moves.add(tokens[i]);
+                int result = Pdn.parseResult(tokens[tokens.length - 1]);
+                if(result == Integer.MIN_VALUE || !builder.addGame(moves.toArray(new String[moves.size()]), result))
+                    skipped++;
+            }
+        } finally {
+            in.close();
+        }
+        int written = builder.write(out, minGames);
+        System.out.println(builder.getGames() + " games, " + skipped + " skipped, " + builder.getEntryCount()
+                + " positions and moves, " + written + " written to " + out);
+    }
+}
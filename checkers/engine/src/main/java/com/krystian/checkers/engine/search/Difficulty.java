@@ -0,0 +1,46 @@
+package com.krystian.checkers.engine.search;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.Position;
+
+import java.util.Random;
+
+public enum Difficulty { //weaker levels search less - and sometimes play a worse move from the multi-PV list
+
+    BEGINNER(new SearchLimits().depth(2).multiPv(4), 80),
+    EASY(new SearchLimits().depth(4).nodes(20000).multiPv(3), 40),
+    MEDIUM(new SearchLimits().depth(6).nodes(200000).hardTime(1000), 0),
+    HARD(new SearchLimits().depth(12).softTime(1000).hardTime(3000), 0),
+    EXPERT(new SearchLimits().softTime(3000).hardTime(8000), 0);
+
+    private final SearchLimits limits;
+    private final int margin; //moves this much worse than the best one may be played
+
+    Difficulty(SearchLimits limits, int margin) {
+        this.limits = limits;
+        this.margin = margin;
+    }
+
+    public SearchLimits getLimits() { return new SearchLimits(limits); } //a copy - callers may change it
+
+    public int getMargin() { return margin; }
+
+    public long choose(Search search, Position position, Random random) {
+        return choose(search, position, limits, random);
+    }
+
+    public long choose(Search search, Position position, SearchLimits limits, Random random) { //limits of this level changed by the caller
+        long best = search.findBestMove(position, limits);
+        if(best == Move.NONE || margin == 0 || search.getPvCount() < 2) return best;
+        int count = 1;
+        while(count < search.getPvCount() && search.getPvScore(count) >= search.getPvScore(0) - margin) count++;
+        return search.getPvMove(random.nextInt(count));
+    }
+
+    public static Difficulty fromName(String name, Difficulty fallback) { //null or unknown names give the fallback
+        if(name != null)
+            for(Difficulty difficulty : values())
+                if(difficulty.name().equals(name)) return difficulty;
+        return fallback;
+    }
+}
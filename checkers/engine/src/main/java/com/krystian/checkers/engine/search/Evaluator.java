@@ -0,0 +1,41 @@
+package com.krystian.checkers.engine.search;
+
+import com.krystian.checkers.engine.Board;
+import com.krystian.checkers.engine.Position;
+
+public class Evaluator { //static score of a quiet position, from the side to move's point of view
+
+    public final static int MAN = 100;
+    public final static int KING = 300; //a queen is worth about three pawns on the 10x10 board
+    public final static int ADVANCE = 3; //per row a pawn has gone forward
+    public final static int CENTRE = 4;
+    private final static long CENTRE_SQUARES = (0x7L << 21) | (0x7L << 26); //22-24, 27-29 (bit indexes 21-23, 26-28)
+
+    private final int man, king, advance, centre;
+
+    public Evaluator() {
+        this(MAN, KING, ADVANCE, CENTRE);
+    }
+
+    public Evaluator(int man, int king, int advance, int centre) { //other weights - for tuning in self-play
+        this.man = man;
+        this.king = king;
+        this.advance = advance;
+        this.centre = centre;
+    }
+
+    public int evaluate(Position position) {
+        int score = man * (Long.bitCount(position.getWhiteMen()) - Long.bitCount(position.getBrownMen()))
+                + king * (Long.bitCount(position.getWhiteKings()) - Long.bitCount(position.getBrownKings()));
+
+        for(long men=position.getWhiteMen(); men != 0; men &= men - 1)
+            score += advance * (9 - Board.row(Long.numberOfTrailingZeros(men)));
+        for(long men=position.getBrownMen(); men != 0; men &= men - 1)
+            score -= advance * Board.row(Long.numberOfTrailingZeros(men));
+
+        score += centre * (Long.bitCount(position.getWhiteMen() & CENTRE_SQUARES)
+                - Long.bitCount(position.getBrownMen() & CENTRE_SQUARES));
+
+        return position.getWhiteToMove() ? score : -score;
+    }
+}
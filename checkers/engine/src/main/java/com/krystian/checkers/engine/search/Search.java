@@ -0,0 +1,268 @@
+package com.krystian.checkers.engine.search;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.tablebase.TablebaseFile;
+import com.krystian.checkers.engine.tablebase.TablebaseProber;
+
+public class Search { //iterative deepening alpha-beta; one Search per thread, the table may outlive many searches
+
+    public final static int INFINITY = 32000;
+    public final static int WIN = 31000; //minus plies to the win
+    public final static int TABLEBASE_WIN = 30000; //won according to tablebases, minus plies to the probed position
+    public final static int MAX_PLY = 100;
+
+    private final TranspositionTable table;
+    private final Evaluator evaluator;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final long[][] moves = new long[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private TablebaseProber tablebases;
+    private Position position;
+    private final SearchStats stats = new SearchStats();
+    private SearchListener listener;
+    private int score;
+    private int completedDepth;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline; //hard time limit
+    private boolean stopped;
+    private volatile boolean stopRequested; //from another thread, e.g. pondering that isn't needed any more
+    private final int[] rootScores = new int[MoveGenerator.MAX_MOVES];
+    private final long[] pvMoves = new long[MoveGenerator.MAX_MOVES]; //best moves of the last full depth, best first
+    private final int[] pvScores = new int[MoveGenerator.MAX_MOVES];
+    private int pvCount;
+    private int bestMoveChanges; //between depths of the last search - the more, the less sure it is
+
+    public Search(TranspositionTable table) {
+        this(table, new Evaluator());
+    }
+
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+    }
+
+    public void setTablebases(TablebaseProber tablebases) { this.tablebases = tablebases; }
+    public void setListener(SearchListener listener) { this.listener = listener; }
+    public TranspositionTable getTable() { return table; }
+    public SearchStats getStats() { return stats; }
+    public long getNodes() { return stats.nodes; }
+    public int getScore() { return score; }
+    public int getCompletedDepth() { return completedDepth; }
+    public boolean wasStopped() { return stopped; }
+    public int getPvCount() { return pvCount; } //up to multi-PV moves with exact scores
+    public long getPvMove(int i) { return pvMoves[i]; }
+    public int getPvScore(int i) { return pvScores[i]; }
+    public int getBestMoveChanges() { return bestMoveChanges; }
+
+    public int getLine(int i, long[] line) { //i-th multi-PV move and the table's best replies after it; call between searches or in onIteration
+        if(i >= pvCount || line.length == 0) return 0;
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        line[0] = pvMoves[i];
+        position.makeMove(line[0]);
+        int length = 1;
+        while(length < line.length && !position.isRepetition() && !position.isDrawByMoves()) {
+            int slot = table.slot(position.getHash());
+            if(slot < 0) break;
+            long move = table.getMove(slot);
+            boolean found = false; //a hash collision could give any move
+            int count = generator.generate(position, legal);
+            for(int j=0; j<count; j++)
+                if(legal[j] == move) found = true;
+            if(!found) break;
+            position.makeMove(move);
+            line[length++] = move;
+        }
+        for(int j=0; j<length; j++) position.unmakeMove();
+        return length;
+    }
+    public void stop() { stopRequested = true; } //search in progress ends as if out of time; the next one too, until clearStop()
+    public void clearStop() { stopRequested = false; }
+
+    public long findBestMove(Position root, int maxDepth) {
+        return findBestMove(root, new SearchLimits().depth(maxDepth));
+    }
+
+    public long findBestMove(Position root, SearchLimits limits) { //root is used for make/unmake and left as it was
+        long start = System.currentTimeMillis();
+        position = root;
+        stats.reset();
+        completedDepth = 0;
+        pvCount = 0;
+        bestMoveChanges = 0;
+        stopped = false;
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        deadline = limits.getHardTime() > 0 ? start + limits.getHardTime() : Long.MAX_VALUE;
+        long[] rootMoves = moves[0];
+        int count = generator.generate(position, rootMoves);
+        if(count == 0) return Move.NONE;
+        count = filterByTablebase(rootMoves, count);
+        int width = Math.min(limits.getMultiPv(), count);
+
+        long best = rootMoves[0];
+        for(int depth=1; depth<=limits.getDepth(); depth++) {
+            int found = 0; //first ones have exact scores, best first
+            for(int i=0; i<count; i++) {
+                int alpha = found < width ? -INFINITY : rootScores[width - 1]; //only has to beat the worst of them
+                long move = rootMoves[i];
+                position.makeMove(move);
+                int value = -negamax(depth - 1, 1, -INFINITY, -alpha);
+                position.unmakeMove();
+                if(stopped) break;
+                if(found < width || value > alpha) {
+                    int place = Math.min(found, width - 1);
+                    while(place > 0 && rootScores[place - 1] < value) place--;
+                    System.arraycopy(rootMoves, place, rootMoves, place + 1, i - place); //order for the next depth
+                    System.arraycopy(rootScores, place, rootScores, place + 1, Math.min(found, width - 1) - place);
+                    rootMoves[place] = move;
+                    rootScores[place] = value;
+                    if(found < width) found++;
+                }
+            }
+            if(stopped) break; //unfinished depth - its scores can't be trusted
+            if(depth > 1 && rootMoves[0] != best) bestMoveChanges++;
+            best = rootMoves[0];
+            score = rootScores[0];
+            completedDepth = depth;
+            pvCount = found;
+            System.arraycopy(rootMoves, 0, pvMoves, 0, found);
+            System.arraycopy(rootScores, 0, pvScores, 0, found);
+            stats.bestMove = best;
+            stats.score = score;
+            stats.iterationDone(depth);
+            if(listener != null) listener.onIteration(stats);
+            if(Math.abs(score) >= WIN - MAX_PLY && width == 1) break; //forced win or loss found - deeper won't change it
+            if(count == 1 && limits.getHardTime() > 0) break; //only move - no point spending the clock on it
+            if(limits.getSoftTime() > 0) { //unstable best move gets up to twice the time, never past the hard limit
+                long soft = limits.getSoftTime() * (4 + Math.min(bestMoveChanges, 4)) / 4;
+                if(System.currentTimeMillis() - start >= soft) break; //next depth would take longer than all so far
+            }
+        }
+        if(completedDepth > 0)
+            table.store(position.getHash(), best, toTable(score, 0), completedDepth, TranspositionTable.EXACT);
+        stats.bestMove = best;
+        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+        if(listener != null) listener.onSearchFinished(stats);
+        return best;
+    }
+
+    private int filterByTablebase(long[] rootMoves, int count) { //keep moves with the best result for the side to move
+        if(tablebases == null || position.getPieceCount() > tablebases.getMaxPieces()) return count;
+        int[] outcome = new int[count]; //2 - win, 1 - draw, 0 - loss
+        int[] distance = new int[count];
+        int bestOutcome = 0;
+        int kings = Long.bitCount(position.getWhiteKings() | position.getBrownKings());
+        for(int i=0; i<count; i++) {
+            position.makeMove(rootMoves[i]);
+            int value = tablebases.probe(position);
+            distance[i] = tablebases.probeDistance(position);
+            if(Move.isCapture(rootMoves[i]) || Long.bitCount(position.getWhiteKings() | position.getBrownKings()) > kings)
+                distance[i] = 0; //take or promotion is progress in itself - distance there counts to the next one
+            position.unmakeMove();
+            if(value == TablebaseProber.UNKNOWN) return count; //a table is missing - just search
+            outcome[i] = value == TablebaseFile.LOSS ? 2 : value == TablebaseFile.DRAW ? 1 : 0;
+            bestOutcome = Math.max(bestOutcome, outcome[i]);
+        }
+
+        int chosen = -1;
+        for(int i=0; i<count; i++) { //with distances known: win as fast as possible, lose as slow as possible
+            if(outcome[i] != bestOutcome || distance[i] < 0 || bestOutcome == 1) continue;
+            if(chosen < 0 || (bestOutcome == 2 ? distance[i] < distance[chosen] : distance[i] > distance[chosen]))
+                chosen = i;
+        }
+        if(chosen >= 0) { //this move makes progress - no need to search
+            rootMoves[0] = rootMoves[chosen];
+            return 1;
+        }
+
+        int kept = 0;
+        for(int i=0; i<count; i++)
+            if(outcome[i] == bestOutcome) rootMoves[kept++] = rootMoves[i];
+        return kept;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        stats.nodes++;
+        if(ply > stats.selectiveDepth) stats.selectiveDepth = ply;
+        if((stats.nodes & 1023) == 0 && (stats.nodes >= nodeLimit || System.currentTimeMillis() >= deadline || stopRequested))
+            stopped = true;
+        if(stopped) return 0;
+        if(position.isDrawByMoves() || position.isRepetition()) return 0; //a cycle can't be won - stop searching it
+        if(tablebases != null && position.getPieceCount() <= tablebases.getMaxPieces()) {
+            int value = tablebases.probe(position);
+            if(value == TablebaseFile.WIN) return TABLEBASE_WIN - ply;
+            if(value == TablebaseFile.LOSS) return -TABLEBASE_WIN + ply;
+            if(value == TablebaseFile.DRAW) return 0;
+        }
+
+        long[] list = moves[ply];
+        int count = generator.generate(position, list);
+        if(count == 0) return -WIN + ply; //no pawns left or all of them blocked - lost
+        if((depth <= 0 && !Move.isCapture(list[0])) || ply >= MAX_PLY) //closer to the 25 moves draw - less it's worth
+            return evaluator.evaluate(position) * (Position.DRAW_MOVES - position.getReversibleMoves()) / Position.DRAW_MOVES;
+        //takes are always searched to the end - a position in the middle of an exchange can't be evaluated
+        if(depth <= 0) stats.quiescenceNodes++;
+
+        int originalAlpha = alpha;
+        long hash = position.getHash();
+        int slot = table.slot(hash);
+        stats.tableProbes++;
+        if(slot >= 0) {
+            stats.tableHits++;
+            if(table.getDepth(slot) >= depth) {
+                int stored = fromTable(table.getScore(slot), ply);
+                int bound = table.getBound(slot);
+                if(bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && stored >= beta)
+                        || (bound == TranspositionTable.UPPER && stored <= alpha)) return stored;
+            }
+            long hashMove = table.getMove(slot);
+            for(int i=1; i<count; i++) {
+                if(list[i] == hashMove) { //best move from before is tried first
+                    list[i] = list[0];
+                    list[0] = hashMove;
+                    break;
+                }
+            }
+        }
+
+        int best = -INFINITY;
+        long bestMove = Move.NONE;
+        for(int i=0; i<count; i++) {
+            position.makeMove(list[i]);
+            int value = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if(stopped) return 0; //nothing from an unfinished search goes to the table
+            if(value > best) {
+                best = value;
+                bestMove = list[i];
+                if(value > alpha) {
+                    alpha = value;
+                    if(alpha >= beta) {
+                        stats.cutoffs++;
+                        if(i == 0) stats.firstMoveCutoffs++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, bestMove, toTable(best, ply), depth, bound);
+        stats.tableStores++;
+        return best;
+    }
+
+    private static int toTable(int score, int ply) { //wins are stored as distance from this position, not from root
+        if(score >= TABLEBASE_WIN - MAX_PLY) return score + ply;
+        if(score <= -TABLEBASE_WIN + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if(score >= TABLEBASE_WIN - MAX_PLY) return score - ply;
+        if(score <= -TABLEBASE_WIN + MAX_PLY) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,56 @@
+package com.krystian.checkers.engine.search;
+
+public class SearchLimits { //when a search stops; zero means no limit, e.g. new SearchLimits().depth(8).hardTime(500)
+
+    private int depth = Search.MAX_PLY;
+    private long nodes;
+    private long softTime; //milliseconds - no new depth is started after that
+    private long hardTime; //milliseconds - search is stopped in the middle of a depth
+    private int multiPv = 1; //best moves that get exact scores
+
+    public SearchLimits() {}
+
+    public SearchLimits(SearchLimits limits) {
+        this.depth = limits.depth;
+        this.nodes = limits.nodes;
+        this.softTime = limits.softTime;
+        this.hardTime = limits.hardTime;
+        this.multiPv = limits.multiPv;
+    }
+
+    public SearchLimits depth(int depth) {
+        this.depth = Math.max(1, Math.min(depth, Search.MAX_PLY));
+        return this;
+    }
+
+    public SearchLimits nodes(long nodes) {
+        this.nodes = nodes;
+        return this;
+    }
+
+    public SearchLimits softTime(long millis) {
+        this.softTime = millis;
+        return this;
+    }
+
+    public SearchLimits hardTime(long millis) {
+        this.hardTime = millis;
+        return this;
+    }
+
+    public SearchLimits multiPv(int multiPv) {
+        this.multiPv = Math.max(1, multiPv);
+        return this;
+    }
+
+    public int getDepth() { return depth; }
+    public long getNodes() { return nodes; }
+    public long getSoftTime() { return softTime; }
+    public long getHardTime() { return hardTime; }
+    public int getMultiPv() { return multiPv; }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + ", nodes " + nodes + ", time " + softTime + "/" + hardTime + " ms, multi-PV " + multiPv;
+    }
+}
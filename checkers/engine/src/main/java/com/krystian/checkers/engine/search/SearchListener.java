@@ -0,0 +1,8 @@
+package com.krystian.checkers.engine.search;
+
+public interface SearchListener { //called on the searching thread - keep it short
+
+    void onIteration(SearchStats stats); //after every completed depth
+
+    void onSearchFinished(SearchStats stats);
+}
@@ -0,0 +1,88 @@
+package com.krystian.checkers.engine.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class SearchStats { //what one findBestMove did; reused - copy the values to keep them past the next search
+
+    public final static int MAX_ITERATIONS = Search.MAX_PLY + 1;
+
+    long startNanos;
+    long nodes;
+    long quiescenceNodes; //searched only because of a take below the nominal depth
+    int depth; //last completed iteration
+    int selectiveDepth; //deepest ply reached
+    long tableProbes;
+    long tableHits;
+    long tableStores;
+    long cutoffs;
+    long firstMoveCutoffs;
+    long bestMove;
+    int score;
+    long elapsedNanos;
+    final long[] iterationNodes = new long[MAX_ITERATIONS]; //nodes of all iterations up to this one
+    final long[] iterationNanos = new long[MAX_ITERATIONS];
+
+    void reset() {
+        startNanos = System.nanoTime();
+        nodes = quiescenceNodes = tableProbes = tableHits = tableStores = cutoffs = firstMoveCutoffs = 0;
+        depth = selectiveDepth = score = 0;
+        bestMove = 0;
+        elapsedNanos = 0;
+        Arrays.fill(iterationNodes, 0);
+        Arrays.fill(iterationNanos, 0);
+    }
+
+    void iterationDone(int depth) {
+        this.depth = depth;
+        iterationNodes[depth] = nodes;
+        iterationNanos[depth] = System.nanoTime() - startNanos;
+        elapsedNanos = iterationNanos[depth];
+    }
+
+    public long getNodes() { return nodes; }
+    public long getQuiescenceNodes() { return quiescenceNodes; }
+    public int getDepth() { return depth; }
+    public int getSelectiveDepth() { return selectiveDepth; }
+    public long getTableProbes() { return tableProbes; }
+    public long getTableHits() { return tableHits; }
+    public long getTableStores() { return tableStores; }
+    public long getCutoffs() { return cutoffs; }
+    public long getFirstMoveCutoffs() { return firstMoveCutoffs; }
+    public long getBestMove() { return bestMove; }
+    public int getScore() { return score; }
+    public long getElapsedMillis() { return elapsedNanos / 1000000; }
+
+    public long getIterationMillis(int depth) { //time of this iteration alone
+        if(depth < 1 || depth > this.depth) return 0;
+        return (iterationNanos[depth] - iterationNanos[depth - 1]) / 1000000;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos > 0 ? nodes * 1000000000L / elapsedNanos : 0;
+    }
+
+    public double getTableHitRate() {
+        return tableProbes > 0 ? (double) tableHits / tableProbes : 0;
+    }
+
+    public double getFirstMoveCutoffRate() { //move ordering quality - 0.9 and more is good
+        return cutoffs > 0 ? (double) firstMoveCutoffs / cutoffs : 0;
+    }
+
+    public double getBranchingFactor() { //effective: nodes of the last iteration to nodes of the one before
+        if(depth < 2) return 0;
+        long last = iterationNodes[depth] - iterationNodes[depth - 1];
+        long before = iterationNodes[depth - 1] - iterationNodes[depth - 2];
+        return before > 0 ? (double) last / before : 0;
+    }
+
+    @Override
+    public String toString() { //one line for logcat or a log file
+        return String.format(Locale.US, "depth %d/%d score %d nodes %d (q %d) %d ms %d nps tt %d/%d/%d (%.1f%%) "
+                        + "cutoffs %d first %.1f%% ebf %.2f",
+                depth, selectiveDepth, score, nodes, quiescenceNodes, getElapsedMillis(), getNodesPerSecond(),
+                tableProbes, tableHits, tableStores, 100 * getTableHitRate(), cutoffs, 100 * getFirstMoveCutoffRate(),
+                getBranchingFactor());
+    }
+}
@@ -0,0 +1,52 @@
+package com.krystian.checkers.engine.search;
+
+import com.krystian.checkers.engine.Move;
+
+import java.util.Arrays;
+
+public class TranspositionTable { //already searched positions; parallel primitive arrays, one slot per hash bucket
+
+    public final static int EXACT = 0;
+    public final static int LOWER = 1; //score is at least this (beta cutoff)
+    public final static int UPPER = 2; //score is at most this (nothing raised alpha)
+
+    private final long[] keys;
+    private final long[] moves;
+    private final int[] data; //score (16 bits) | depth (8 bits) | bound (2 bits)
+    private final int mask;
+
+    public TranspositionTable(int sizeLog2) {
+        int size = 1 << sizeLog2;
+        this.keys = new long[size];
+        this.moves = new long[size];
+        this.data = new int[size];
+        this.mask = size - 1;
+    }
+
+    public static long bytesPerEntry() { return 8 + 8 + 4; }
+    public int size() { return keys.length; }
+
+    public int slot(long hash) { //-1 when the position isn't there
+        int slot = (int) hash & mask;
+        return keys[slot] == hash ? slot : -1;
+    }
+
+    public long getMove(int slot) { return moves[slot]; }
+    public int getScore(int slot) { return (short) (data[slot] >>> 16); }
+    public int getDepth(int slot) { return (data[slot] >>> 2) & 0xFF; }
+    public int getBound(int slot) { return data[slot] & 3; }
+
+    public void store(long hash, long move, int score, int depth, int bound) {
+        int slot = (int) hash & mask; //always replace - the newest result is the most useful one
+        if(keys[slot] == hash && move == Move.NONE) move = moves[slot]; //keep the best move found before
+        keys[slot] = hash;
+        moves[slot] = move;
+        data[slot] = ((score & 0xFFFF) << 16) | (Math.max(0, Math.min(depth, 255)) << 2) | bound;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(moves, 0);
+        Arrays.fill(data, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.krystian.checkers.engine.tablebase;
+
+import com.krystian.checkers.engine.Board;
+
+public final class Material { //piece counts of one table; tables are always stored with white to move
+
+    private final int whiteMen;
+    private final int whiteKings;
+    private final int brownMen;
+    private final int brownKings;
+
+    public Material(int whiteMen, int whiteKings, int brownMen, int brownKings) {
+        this.whiteMen = whiteMen;
+        this.whiteKings = whiteKings;
+        this.brownMen = brownMen;
+        this.brownKings = brownKings;
+    }
+
+    public static Material of(long wm, long wk, long bm, long bk) {
+        return new Material(Long.bitCount(wm), Long.bitCount(wk), Long.bitCount(bm), Long.bitCount(bk));
+    }
+
+    public int getWhiteMen() { return whiteMen; }
+    public int getWhiteKings() { return whiteKings; }
+    public int getBrownMen() { return brownMen; }
+    public int getBrownKings() { return brownKings; }
+    public int getPieceCount() { return whiteMen + whiteKings + brownMen + brownKings; }
+    public int getMenCount() { return whiteMen + brownMen; }
+
+    public Material flipped() { //same table seen by the other side - brown to move in this one is white to move there
+        return new Material(brownMen, brownKings, whiteMen, whiteKings);
+    }
+
+    public boolean isValid() { //both sides on board and pawns fit on the squares they can stand on
+        return whiteMen + whiteKings > 0 && brownMen + brownKings > 0
+                && whiteMen <= 45 && brownMen <= 45 && getPieceCount() <= Board.SQUARES;
+    }
+
+    public String getName() { //file name, e.g. w1m2k_b0m2k
+        return "w" + whiteMen + "m" + whiteKings + "k_b" + brownMen + "m" + brownKings + "k";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof Material)) return false;
+        Material m = (Material) o;
+        return whiteMen == m.whiteMen && whiteKings == m.whiteKings && brownMen == m.brownMen && brownKings == m.brownKings;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((whiteMen * 51 + whiteKings) * 51 + brownMen) * 51 + brownKings;
+    }
+
+    @Override
+    public String toString() { return getName(); }
+}
@@ -0,0 +1,156 @@
+package com.krystian.checkers.engine.tablebase;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class TablebaseFile {
+
+    /*  One file per Material and kind:
+        int magic, byte version, byte kind, 4 bytes of piece counts (wm, wk, bm, bk),
+        long entries, int entries per block, int block count,
+        long[block count + 1] absolute offsets of blocks (the last one is the end of file),
+        deflated blocks.
+        WDL block: 2 bits per position, 4 positions in a byte starting from the lowest bits.
+        DTC block: 1 byte per position - plies to the next take or promotion (0 for draws), 255 at most.
+    */
+
+    public final static int MAGIC = 0x434B5442; //"CKTB"
+    public final static int VERSION = 1;
+    public final static int KIND_WDL = 0;
+    public final static int KIND_DTC = 1;
+    public final static int BLOCK_ENTRIES = 4096;
+    public final static int HEADER_SIZE = 4 + 1 + 1 + 4 + 8 + 4 + 4;
+
+    public final static int DRAW = 0; //values as seen by the side to move
+    public final static int WIN = 1;
+    public final static int LOSS = 2;
+
+    public interface ValueSource {
+        int value(long index); //WDL value or distance
+    }
+
+    private TablebaseFile() {}
+
+    public static String fileName(Material material, int kind) {
+        return material.getName() + (kind == KIND_WDL ? ".wdl" : ".dtc");
+    }
+
+    public static int blockBytes(int kind) {
+        return kind == KIND_WDL ? BLOCK_ENTRIES / 4 : BLOCK_ENTRIES;
+    }
+
+    public static void write(File file, Material material, int kind, long entries, ValueSource source)
+            throws IOException {
+        int blockCount = (int) ((entries + BLOCK_ENTRIES - 1) / BLOCK_ENTRIES);
+        long[] offset = new long[blockCount + 1];
+        File temporary = new File(file.getPath() + ".tmp"); //renamed only when complete - half a file is never taken as done
+        RandomAccessFile out = new RandomAccessFile(temporary, "rw");
+        try {
+            out.setLength(0);
+            out.seek(HEADER_SIZE + 8L * (blockCount + 1)); //header goes in at the end, when offsets are known
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            byte[] block = new byte[blockBytes(kind)];
+            byte[] compressed = new byte[block.length * 2 + 64];
+            for(int b=0; b<blockCount; b++) {
+                offset[b] = out.getFilePointer();
+                Arrays.fill(block, (byte) 0);
+                long first = (long) b * BLOCK_ENTRIES;
+                int count = (int) Math.min(BLOCK_ENTRIES, entries - first);
+                for(int i=0; i<count; i++) {
+                    int value = source.value(first + i);
+                    if(kind == KIND_WDL) block[i >> 2] |= value << ((i & 3) << 1);
+                    else block[i] = (byte) Math.min(value, 255);
+                }
+                deflater.reset();
+                deflater.setInput(block);
+                deflater.finish();
+                int length = deflater.deflate(compressed);
+                out.write(compressed, 0, length);
+            }
+            offset[blockCount] = out.getFilePointer();
+            deflater.end();
+
+            out.seek(0);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+            out.writeByte(material.getWhiteMen());
+            out.writeByte(material.getWhiteKings());
+            out.writeByte(material.getBrownMen());
+            out.writeByte(material.getBrownKings());
+            out.writeLong(entries);
+            out.writeInt(BLOCK_ENTRIES);
+            out.writeInt(blockCount);
+            for(long o : offset) out.writeLong(o);
+        } finally {
+            out.close();
+        }
+        if(file.exists() && !file.delete()) throw new IOException("Can't replace " + file);
+        if(!temporary.renameTo(file)) throw new IOException("Can't rename " + temporary);
+    }
+
+    public static boolean isComplete(File file, Material material, long entries) {
+        if(!file.isFile() || file.length() < HEADER_SIZE) return false;
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                return in.readInt() == MAGIC && in.readByte() == VERSION && in.readByte() >= 0
+                        && in.readByte() == material.getWhiteMen() && in.readByte() == material.getWhiteKings()
+                        && in.readByte() == material.getBrownMen() && in.readByte() == material.getBrownKings()
+                        && in.readLong() == entries;
+            } finally {
+                in.close();
+            }
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    public static byte[] readWdl(File file) throws IOException { //whole table on the heap, packed as in the blocks
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            if(in.readInt() != MAGIC || in.readByte() != VERSION || in.readByte() != KIND_WDL)
+                throw new IOException("Not a WDL table: " + file);
+            in.skipBytes(4);
+            long entries = in.readLong();
+            int blockEntries = in.readInt();
+            int blockCount = in.readInt();
+            long[] offset = new long[blockCount + 1];
+            for(int i=0; i<=blockCount; i++) offset[i] = in.readLong();
+
+            byte[] packed = new byte[(int) ((entries + 3) / 4)];
+            byte[] compressed = new byte[0];
+            Inflater inflater = new Inflater();
+            try {
+                for(int b=0; b<blockCount; b++) {
+                    int length = (int) (offset[b + 1] - offset[b]);
+                    if(compressed.length < length) compressed = new byte[length];
+                    in.seek(offset[b]);
+                    in.readFully(compressed, 0, length);
+                    inflater.reset();
+                    inflater.setInput(compressed, 0, length);
+                    int start = b * (blockEntries / 4);
+                    inflater.inflate(packed, start, Math.min(blockEntries / 4, packed.length - start));
+                }
+            } catch(DataFormatException e) {
+                throw new IOException("Damaged table: " + file, e);
+            } finally {
+                inflater.end();
+            }
+            return packed;
+        } finally {
+            in.close();
+        }
+    }
+
+    public static int wdl(byte[] packed, long index) {
+        return (packed[(int) (index >> 2)] >> ((index & 3) << 1)) & 3;
+    }
+}
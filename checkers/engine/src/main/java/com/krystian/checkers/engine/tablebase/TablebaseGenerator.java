@@ -0,0 +1,370 @@
+package com.krystian.checkers.engine.tablebase;
+
+import com.krystian.checkers.engine.Board;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TablebaseGenerator { //offline retrograde solver: java ... TablebaseGenerator --dir tb --pieces 5
+
+    /*  Tables are solved in jobs - Material and its flipped twin together, because a quiet move in one
+        always leads to the other. Jobs go from the fewest pieces and pawns up, so takes and promotions
+        only lead to tables which are already done (on disk or generated earlier in this run).
+
+        1. Initial pass: positions without moves are lost, positions decided by a take or promotion
+           (into an already solved table) are won/lost/drawn straight away.
+        2. Retrograde passes: positions solved in pass p-1 are taken back one move (un-move of the side
+           which moved last). A predecessor of a lost position is won; a predecessor of a won position is
+           lost when all its moves lead to positions won for the opponent. Position solved in pass p is
+           p plies from the next take or promotion - only values from earlier passes are used, so results
+           don't depend on how threads interleave.
+        3. What's left unsolved is a draw. The 25-move rule isn't applied - tables hold the exact result.
+
+        Restart: a table file is written under a temporary name and renamed when complete, so after
+        a crash every complete file is skipped and generation goes on with the first missing job.
+    */
+
+    private final static int UNKNOWN = 0; //codes in memory: 1 - draw, 2 + 2d - loss in d plies, 3 + 2d - win in d plies
+    private final static int DRAWN = 1;
+    private final static int MAX_DISTANCE = 126; //what a byte can hold; longer distances are saved as 126
+    private final static int CHUNK = 1 << 14; //positions taken by a thread at once
+
+    private final File directory;
+    private final int maxPieces;
+    private final int threads;
+    private final boolean writeDistance;
+    private final PrintStream log;
+
+    private final Map<Material, TablebaseIndex> indexes = new HashMap<>();
+    private final Map<Material, byte[]> solved = new HashMap<>(); //packed WDL of finished tables
+    private ExecutorService pool;
+
+    private Material[] jobMaterial; //one or two tables solved together
+    private TablebaseIndex[] jobIndex;
+    private byte[][] jobCodes;
+    private int pass;
+    private boolean iterating; //distances over MAX_DISTANCE - plain fixed-point iteration from now on
+
+    public TablebaseGenerator(File directory, int maxPieces, int threads, boolean writeDistance, PrintStream log) {
+        this.directory = directory;
+        this.maxPieces = maxPieces;
+        this.threads = threads;
+        this.writeDistance = writeDistance;
+        this.log = log;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File directory = new File("tablebases");
+        int pieces = 5;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean distance = false;
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("--dir")) directory = new File(args[++i]);
+            else if(args[i].equals("--pieces")) pieces = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--distance")) distance = true;
+            else {
+                System.err.println("Usage: TablebaseGenerator [--dir path] [--pieces n] [--threads n] [--distance]");
+                System.exit(1);
+            }
+        }
+        if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create " + directory);
+        new TablebaseGenerator(directory, pieces, threads, distance, System.out).generate();
+    }
+
+    public void generate() throws IOException, InterruptedException {
+        List<Material[]> jobs = createJobs(maxPieces);
+        for(Material[] job : jobs)
+            for(Material material : job) indexes.put(material, new TablebaseIndex(material));
+
+        pool = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+        try {
+            for(int j=0; j<jobs.size(); j++) {
+                Material[] job = jobs.get(j);
+                String name = job.length == 1 ? job[0].getName() : job[0].getName() + " + " + job[1].getName();
+                if(isComplete(job)) {
+                    for(Material material : job)
+                        solved.put(material, TablebaseFile.readWdl(wdlFile(material)));
+                    log.println("[" + (j + 1) + "/" + jobs.size() + "] " + name + " - already done");
+                    continue;
+                }
+                log.println("[" + (j + 1) + "/" + jobs.size() + "] " + name + " - " + positions(job) + " positions");
+                solve(job);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        log.println("All tables done in " + (System.currentTimeMillis() - start) / 1000 + " s");
+    }
+
+    public static List<Material[]> createJobs(int maxPieces) { //ordered so that every job only needs earlier ones
+        List<Material[]> jobs = new ArrayList<>();
+        for(int pieces=2; pieces<=maxPieces; pieces++) {
+            for(int men=0; men<=pieces; men++) {
+                for(int wm=0; wm<=men; wm++) {
+                    for(int wk=0; wk<=pieces-men; wk++) {
+                        Material material = new Material(wm, wk, men - wm, pieces - men - wk);
+                        Material flipped = material.flipped();
+                        if(!material.isValid() || flipped.hashCode() < material.hashCode()) continue; //twin already listed
+                        jobs.add(material.equals(flipped) ? new Material[]{material} : new Material[]{material, flipped});
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    private void solve(Material[] job) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        jobMaterial = job;
+        jobIndex = new TablebaseIndex[job.length];
+        jobCodes = new byte[job.length][];
+        for(int t=0; t<job.length; t++) {
+            jobIndex[t] = indexes.get(job[t]);
+            if(jobIndex[t].size() > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException(job[t].getName() + " is too big to be solved in memory");
+            jobCodes[t] = new byte[(int) jobIndex[t].size()];
+        }
+
+        pass = 0;
+        iterating = false;
+        long total = positions(job);
+        long found = runPass();
+        report(found, found, total, start);
+        while(true) {
+            pass++;
+            if(pass > MAX_DISTANCE) iterating = true;
+            long changed = runPass();
+            found += changed;
+            report(changed, found, total, start);
+            if(changed == 0 && pass > 1) break; //pass 1 only has the lost positions - won ones in 1 came from the first pass
+        }
+
+        for(int t=0; t<job.length; t++) {
+            final byte[] codes = jobCodes[t];
+            TablebaseFile.write(wdlFile(job[t]), job[t], TablebaseFile.KIND_WDL, codes.length,
+                    new TablebaseFile.ValueSource() {
+                        public int value(long index) { return wdl(codes[(int) index] & 0xFF); }
+                    });
+            if(writeDistance) {
+                TablebaseFile.write(new File(directory, TablebaseFile.fileName(job[t], TablebaseFile.KIND_DTC)),
+                        job[t], TablebaseFile.KIND_DTC, codes.length, new TablebaseFile.ValueSource() {
+                            public int value(long index) {
+                                int code = codes[(int) index] & 0xFF;
+                                return code < 2 ? 0 : distance(code);
+                            }
+                        });
+            }
+            solved.put(job[t], TablebaseFile.readWdl(wdlFile(job[t])));
+        }
+        jobCodes = null; //let it go before the next job allocates
+        log.println("    written in " + (System.currentTimeMillis() - start) / 1000 + " s");
+    }
+
+    private long runPass() throws InterruptedException {
+        final long total = positions(jobMaterial);
+        final AtomicLong nextChunk = new AtomicLong();
+        List<Callable<Long>> workers = new ArrayList<>();
+        for(int i=0; i<threads; i++) {
+            workers.add(new Callable<Long>() {
+                public Long call() {
+                    Worker worker = new Worker();
+                    long changed = 0;
+                    long first;
+                    while((first = nextChunk.getAndAdd(CHUNK)) < total) {
+                        long last = Math.min(first + CHUNK, total);
+                        for(long g=first; g<last; g++) {
+                            int t = g < jobCodes[0].length ? 0 : 1;
+                            int index = (int) (t == 0 ? g : g - jobCodes[0].length);
+                            changed += worker.visit(t, index);
+                        }
+                    }
+                    return changed;
+                }
+            });
+        }
+        long changed = 0;
+        try {
+            for(Future<Long> result : pool.invokeAll(workers)) changed += result.get();
+        } catch(ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return changed;
+    }
+
+    private class Worker { //everything a thread needs - nothing is shared but the code arrays
+        private final MoveGenerator generator = new MoveGenerator();
+        private final Position position = new Position();
+        private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+        private final long[] masks = new long[4];
+
+        long visit(int t, int index) {
+            int code = jobCodes[t][index] & 0xFF;
+            if(pass == 0) return initial(t, index);
+            if(iterating) return code == UNKNOWN ? iterate(t, index) : 0;
+            if(code < 2 || distance(code) != pass - 1) return 0; //not in the frontier
+            return retrograde(t, index, isWin(code));
+        }
+
+        private long initial(int t, int index) {
+            jobIndex[t].position(index, masks);
+            position.set(masks[0], masks[1], masks[2], masks[3], true);
+            int count = generator.generate(position, moves);
+            if(count == 0) return store(t, index, TablebaseFile.LOSS, 0); //no pieces to move - lost
+
+            boolean inside = false;
+            boolean draw = false;
+            for(int i=0; i<count; i++) {
+                position.makeMove(moves[i]);
+                int value = probeSolved(position);
+                position.unmakeMove();
+                if(value == TablebaseFile.LOSS) return store(t, index, TablebaseFile.WIN, 1);
+                else if(value == TablebaseFile.DRAW) draw = true;
+                else if(value < 0) inside = true;
+            }
+            if(inside) return 0;
+            return draw ? store(t, index, TablebaseFile.DRAW, 0) : store(t, index, TablebaseFile.LOSS, 1);
+        }
+
+        private long retrograde(int t, int index, boolean win) { //take back brown's last move
+            jobIndex[t].position(index, masks);
+            long wm = masks[0], wk = masks[1], bm = masks[2], bk = masks[3];
+            long empty = ~(wm | wk | bm | bk) & Board.ALL_SQUARES;
+            long changed = 0;
+            for(long kings=bk; kings != 0; kings &= kings - 1) {
+                int to = Long.numberOfTrailingZeros(kings);
+                for(int dir=0; dir<4; dir++) {
+                    for(int from : Board.RAY[dir][to]) {
+                        if((empty & (1L << from)) == 0) break;
+                        changed += predecessor(wm, wk, bm, bk ^ (1L << to) ^ (1L << from), win);
+                    }
+                }
+            }
+            for(long men=bm; men != 0; men &= men - 1) { //brown pawns go down, so they came from above
+                int to = Long.numberOfTrailingZeros(men);
+                for(int dir=Board.UP_LEFT; dir<=Board.UP_RIGHT; dir++) {
+                    int from = Board.NEIGHBOUR[dir][to];
+                    if(from >= 0 && (empty & (1L << from)) != 0)
+                        changed += predecessor(wm, wk, bm ^ (1L << to) ^ (1L << from), bk, win);
+                }
+            }
+            return changed;
+        }
+
+        private long predecessor(long wm, long wk, long bm, long bk, boolean childWon) {
+            position.set(wm, wk, bm, bk, false);
+            if(generator.hasCapture(position)) return 0; //a quiet move wasn't legal there
+            long fwm = Board.flip(bm), fwk = Board.flip(bk), fbm = Board.flip(wm), fbk = Board.flip(wk);
+            int t = table(Material.of(fwm, fwk, fbm, fbk));
+            int index = (int) jobIndex[t].index(fwm, fwk, fbm, fbk);
+            if(jobCodes[t][index] != UNKNOWN) return 0;
+            if(!childWon) return store(t, index, TablebaseFile.WIN, pass); //a move into a lost position
+            position.set(fwm, fwk, fbm, fbk, true);
+            return allMovesLose() ? store(t, index, TablebaseFile.LOSS, pass) : 0;
+        }
+
+        private boolean allMovesLose() { //every move leads to a position won by the opponent
+            int count = generator.generate(position, moves);
+            for(int i=0; i<count; i++) {
+                position.makeMove(moves[i]);
+                int value = probe(position);
+                position.unmakeMove();
+                if(value != TablebaseFile.WIN) return false;
+            }
+            return true;
+        }
+
+        private long iterate(int t, int index) { //slow path for the rare very long wins
+            jobIndex[t].position(index, masks);
+            position.set(masks[0], masks[1], masks[2], masks[3], true);
+            int count = generator.generate(position, moves);
+            boolean allWon = true;
+            for(int i=0; i<count; i++) {
+                position.makeMove(moves[i]);
+                int value = probe(position);
+                position.unmakeMove();
+                if(value == TablebaseFile.LOSS) return store(t, index, TablebaseFile.WIN, MAX_DISTANCE);
+                if(value != TablebaseFile.WIN) allWon = false;
+            }
+            return allWon ? store(t, index, TablebaseFile.LOSS, MAX_DISTANCE) : 0;
+        }
+
+        private int probe(Position child) { //value for the side to move in child or -1 if not known yet
+            int value = probeSolved(child);
+            if(value >= 0) return value;
+            long fwm = Board.flip(child.getBrownMen()), fwk = Board.flip(child.getBrownKings());
+            long fbm = Board.flip(child.getWhiteMen()), fbk = Board.flip(child.getWhiteKings());
+            int t = table(Material.of(fwm, fwk, fbm, fbk));
+            int code = jobCodes[t][(int) jobIndex[t].index(fwm, fwk, fbm, fbk)] & 0xFF;
+            if(code == UNKNOWN || (!iterating && code != DRAWN && distance(code) >= pass)) return -1; //solved in this pass
+            return wdl(code);
+        }
+
+        private int probeSolved(Position child) { //child has brown to move; -1 when it's in the current job
+            long fwm = Board.flip(child.getBrownMen()), fwk = Board.flip(child.getBrownKings());
+            long fbm = Board.flip(child.getWhiteMen()), fbk = Board.flip(child.getWhiteKings());
+            if((fwm | fwk) == 0) return TablebaseFile.LOSS; //everything taken
+            Material material = Material.of(fwm, fwk, fbm, fbk);
+            byte[] table = solved.get(material);
+            if(table == null) return -1;
+            return TablebaseFile.wdl(table, indexes.get(material).index(fwm, fwk, fbm, fbk));
+        }
+    }
+
+    private long store(int t, int index, int value, int distance) {
+        int d = Math.min(distance, MAX_DISTANCE);
+        if(value == TablebaseFile.DRAW) jobCodes[t][index] = DRAWN;
+        else jobCodes[t][index] = (byte) (value == TablebaseFile.WIN ? 3 + 2 * d : 2 + 2 * d);
+        return 1;
+    }
+
+    private int table(Material material) {
+        return jobMaterial[0].equals(material) ? 0 : 1;
+    }
+
+    private static boolean isWin(int code) { return (code & 1) == 1; }
+    private static int distance(int code) { return (code - 2) >> 1; }
+
+    private static int wdl(int code) {
+        if(code < 2) return TablebaseFile.DRAW; //unknown at the end is a draw as well
+        return isWin(code) ? TablebaseFile.WIN : TablebaseFile.LOSS;
+    }
+
+    private boolean isComplete(Material[] job) {
+        for(Material material : job)
+            if(!TablebaseFile.isComplete(wdlFile(material), material, indexes.get(material).size())) return false;
+        return true;
+    }
+
+    private File wdlFile(Material material) {
+        return new File(directory, TablebaseFile.fileName(material, TablebaseFile.KIND_WDL));
+    }
+
+    private long positions(Material[] job) {
+        long total = 0;
+        for(Material material : job) total += indexes.get(material).size();
+        return total;
+    }
+
+    private void report(long changed, long found, long total, long start) {
+        Runtime runtime = Runtime.getRuntime();
+        long used = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        log.println(String.format("    pass %d: %d solved, %.1f%% done, %d s, heap %d / %d MB",
+                pass, changed, 100.0 * found / total, (System.currentTimeMillis() - start) / 1000,
+                used, runtime.maxMemory() >> 20));
+    }
+}
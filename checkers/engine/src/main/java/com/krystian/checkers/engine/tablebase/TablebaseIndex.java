@@ -0,0 +1,135 @@
+package com.krystian.checkers.engine.tablebase;
+
+import com.krystian.checkers.engine.Board;
+
+public class TablebaseIndex { //perfect index of piece placements for one Material (white to move)
+
+    /*  Order of placing pieces - every group only counts squares the groups before left free:
+        1. white pawns: squares 6-45 (k of them) and 46-50 (the rest); white pawn can't stand on 1-5
+        2. brown pawns: squares 1-45 without the white pawns there - that's why white pawns are split by k
+        3. white kings: every square still free
+        4. brown kings: every square still free
+        Every index from 0 to size()-1 is a different legal placement, so nothing is wasted in a table file.
+    */
+
+    private final static long[][] BINOMIAL = new long[Board.SQUARES + 1][Board.SQUARES + 1];
+    private final static long WHITE_MEN_HIGH = 0xFFFFFFFFFFL << 5; //squares 6-45
+    private final static long WHITE_MEN_LOW = 0x1FL << 45; //squares 46-50
+
+    static {
+        for(int n=0; n<=Board.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for(int k=1; k<=n; k++) BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+        }
+    }
+
+    private final Material material;
+    private final int wm, wk, bm, bk;
+    private final int minHigh; //fewest white pawns that can be on 6-45
+    private final long[] offset; //first index for every k (white pawns on 6-45)
+    private final long whiteKingPlacements;
+    private final long brownKingPlacements;
+
+    public TablebaseIndex(Material material) {
+        this.material = material;
+        this.wm = material.getWhiteMen();
+        this.wk = material.getWhiteKings();
+        this.bm = material.getBrownMen();
+        this.bk = material.getBrownKings();
+        this.minHigh = Math.max(0, wm - 5);
+        this.whiteKingPlacements = binomial(Board.SQUARES - wm - bm, wk);
+        this.brownKingPlacements = binomial(Board.SQUARES - wm - bm - wk, bk);
+        this.offset = new long[wm + 2];
+        for(int k=minHigh; k<=wm; k++)
+            offset[k + 1] = offset[k] + binomial(40, k) * binomial(5, wm - k) * binomial(45 - k, bm)
+                    * whiteKingPlacements * brownKingPlacements;
+    }
+
+    public Material getMaterial() { return material; }
+    public long size() { return offset[wm + 1]; }
+
+    public static long binomial(int n, int k) {
+        if(k < 0 || n < 0 || k > n) return 0;
+        return BINOMIAL[n][k];
+    }
+
+    public long index(long whiteMen, long whiteKings, long brownMen, long brownKings) {
+        long high = whiteMen & WHITE_MEN_HIGH;
+        int k = Long.bitCount(high);
+        long whiteRank = rank(high >>> 5) * binomial(5, wm - k) + rank((whiteMen & WHITE_MEN_LOW) >>> 45);
+        long brownRank = rank(compress(brownMen, whiteMen));
+        long men = whiteMen | brownMen;
+        long whiteKingRank = rank(compress(whiteKings, men));
+        long brownKingRank = rank(compress(brownKings, men | whiteKings));
+        return offset[k] + ((whiteRank * binomial(45 - k, bm) + brownRank) * whiteKingPlacements + whiteKingRank)
+                * brownKingPlacements + brownKingRank;
+    }
+
+    public void position(long index, long[] masks) { //masks: white men, white kings, brown men, brown kings
+        int k = minHigh;
+        while(offset[k + 1] <= index) k++;
+        long rest = index - offset[k];
+        long brownKingRank = rest % brownKingPlacements;
+        rest /= brownKingPlacements;
+        long whiteKingRank = rest % whiteKingPlacements;
+        rest /= whiteKingPlacements;
+        long brownRank = rest % binomial(45 - k, bm);
+        long whiteRank = rest / binomial(45 - k, bm);
+
+        long whiteMen = (unrank(whiteRank / binomial(5, wm - k), k) << 5)
+                | (unrank(whiteRank % binomial(5, wm - k), wm - k) << 45);
+        long brownMen = expand(unrank(brownRank, bm), whiteMen);
+        long men = whiteMen | brownMen;
+        long whiteKings = expand(unrank(whiteKingRank, wk), men);
+        long brownKings = expand(unrank(brownKingRank, bk), men | whiteKings);
+        masks[0] = whiteMen;
+        masks[1] = whiteKings;
+        masks[2] = brownMen;
+        masks[3] = brownKings;
+    }
+
+    private static long rank(long set) { //combinatorial number system: sum of C(position, i) for i-th lowest bit
+        long rank = 0;
+        int i = 1;
+        while(set != 0) {
+            rank += binomial(Long.numberOfTrailingZeros(set), i++);
+            set &= set - 1;
+        }
+        return rank;
+    }
+
+    private static long unrank(long rank, int count) {
+        long set = 0;
+        int c = Board.SQUARES;
+        for(int i=count; i>0; i--) {
+            while(binomial(c, i) > rank) c--;
+            rank -= binomial(c, i);
+            set |= 1L << c;
+        }
+        return set;
+    }
+
+    private static long compress(long set, long taken) { //renumber squares as if taken ones weren't there
+        long result = 0;
+        while(set != 0) {
+            int sq = Long.numberOfTrailingZeros(set);
+            set &= set - 1;
+            result |= 1L << (sq - Long.bitCount(taken & ((1L << sq) - 1)));
+        }
+        return result;
+    }
+
+    private static long expand(long set, long taken) { //reverse of compress
+        long result = 0;
+        int free = 0;
+        for(int sq=0; sq<Board.SQUARES && set != 0; sq++) {
+            if((taken & (1L << sq)) != 0) continue;
+            if((set & (1L << free)) != 0) {
+                result |= 1L << sq;
+                set &= ~(1L << free);
+            }
+            free++;
+        }
+        return result;
+    }
+}
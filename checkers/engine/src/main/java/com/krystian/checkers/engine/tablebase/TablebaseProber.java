@@ -0,0 +1,179 @@
+package com.krystian.checkers.engine.tablebase;
+
+import com.krystian.checkers.engine.Board;
+import com.krystian.checkers.engine.Position;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class TablebaseProber { //reads tables straight from memory-mapped files; only a few blocks are ever on the heap
+
+    public final static int UNKNOWN = -1;
+    public final static int DEFAULT_CACHED_BLOCKS = 64; //64 KB of WDL blocks
+
+    private final Map<Material, Table> wdl = new HashMap<>();
+    private final Map<Material, Table> dtc = new HashMap<>();
+    private final int maxPieces; //every table up to this many pieces is there
+    private final LinkedHashMap<Long, byte[]> cache; //least recently used blocks go first
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[8192];
+    private byte[] spareWdl; //evicted blocks are reused - no garbage on a miss
+    private byte[] spareDtc;
+    private long probes;
+    private long misses;
+
+    private static class Table {
+        int id;
+        int kind;
+        TablebaseIndex index;
+        MappedByteBuffer buffer;
+        int blockEntries;
+        int blockCount;
+    }
+
+    public TablebaseProber(File directory) throws IOException {
+        this(directory, DEFAULT_CACHED_BLOCKS);
+    }
+
+    public TablebaseProber(File directory, final int cachedBlocks) throws IOException {
+        this.cache = new LinkedHashMap<Long, byte[]>(cachedBlocks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if(size() <= cachedBlocks) return false;
+                if(eldest.getValue().length == TablebaseFile.blockBytes(TablebaseFile.KIND_WDL)) spareWdl = eldest.getValue();
+                else spareDtc = eldest.getValue();
+                return true;
+            }
+        };
+        File[] files = directory.listFiles();
+        int id = 0;
+        if(files != null) {
+            for(File file : files) {
+                Table table = open(file);
+                if(table == null) continue;
+                table.id = id++;
+                if(table.kind == TablebaseFile.KIND_WDL) wdl.put(table.index.getMaterial(), table);
+                else dtc.put(table.index.getMaterial(), table);
+            }
+        }
+        int pieces = 1;
+        while(pieces < 12 && complete(pieces + 1)) pieces++;
+        this.maxPieces = pieces > 1 ? pieces : 0;
+    }
+
+    public int getMaxPieces() { return maxPieces; }
+    public boolean hasDistance() { return !dtc.isEmpty(); }
+    public long getProbes() { return probes; }
+    public long getMisses() { return misses; }
+
+    public int probe(Position position) { //WIN, DRAW or LOSS for the side to move, or UNKNOWN
+        if(position.getPieceCount() > maxPieces) return UNKNOWN;
+        return lookup(wdl, position);
+    }
+
+    public int probeDistance(Position position) { //plies to the next take or promotion, UNKNOWN without .dtc files
+        if(position.getPieceCount() > maxPieces) return UNKNOWN;
+        return lookup(dtc, position);
+    }
+
+    private synchronized int lookup(Map<Material, Table> tables, Position position) {
+        long wm, wk, bm, bk;
+        if(position.getWhiteToMove()) {
+            wm = position.getWhiteMen();
+            wk = position.getWhiteKings();
+            bm = position.getBrownMen();
+            bk = position.getBrownKings();
+        }
+        else { //tables only have white to move - look at the board from brown's side
+            wm = Board.flip(position.getBrownMen());
+            wk = Board.flip(position.getBrownKings());
+            bm = Board.flip(position.getWhiteMen());
+            bk = Board.flip(position.getWhiteKings());
+        }
+        if((wm | wk) == 0) return tables == wdl ? TablebaseFile.LOSS : 0;
+        Table table = tables.get(Material.of(wm, wk, bm, bk));
+        if(table == null) return UNKNOWN;
+
+        probes++;
+        long index = table.index.index(wm, wk, bm, bk);
+        int block = (int) (index / table.blockEntries);
+        int i = (int) (index % table.blockEntries);
+        Long key = ((long) table.id << 32) | block;
+        byte[] data = cache.get(key);
+        if(data == null) {
+            misses++;
+            data = inflate(table, block);
+            if(data == null) return UNKNOWN;
+            cache.put(key, data);
+        }
+        if(table.kind == TablebaseFile.KIND_WDL) return (data[i >> 2] >> ((i & 3) << 1)) & 3;
+        return data[i] & 0xFF;
+    }
+
+    private byte[] inflate(Table table, int block) {
+        int offsetPosition = TablebaseFile.HEADER_SIZE + 8 * block;
+        int start = (int) table.buffer.getLong(offsetPosition);
+        int length = (int) (table.buffer.getLong(offsetPosition + 8) - start);
+        if(compressed.length < length) compressed = new byte[length];
+        ByteBuffer view = table.buffer.duplicate(); //own position - the shared buffer is never moved
+        view.position(start);
+        view.get(compressed, 0, length);
+
+        byte[] data;
+        if(table.kind == TablebaseFile.KIND_WDL) {
+            data = spareWdl != null ? spareWdl : new byte[TablebaseFile.blockBytes(TablebaseFile.KIND_WDL)];
+            spareWdl = null;
+        }
+        else {
+            data = spareDtc != null ? spareDtc : new byte[TablebaseFile.blockBytes(TablebaseFile.KIND_DTC)];
+            spareDtc = null;
+        }
+        inflater.reset();
+        inflater.setInput(compressed, 0, length);
+        try {
+            inflater.inflate(data);
+        } catch(DataFormatException e) {
+            return null;
+        }
+        return data;
+    }
+
+    private boolean complete(int pieces) { //every material with this many pieces has a WDL table
+        List<Material[]> jobs = TablebaseGenerator.createJobs(pieces);
+        for(Material[] job : jobs)
+            for(Material material : job)
+                if(material.getPieceCount() == pieces && !wdl.containsKey(material)) return false;
+        return !jobs.isEmpty();
+    }
+
+    private static Table open(File file) throws IOException {
+        String name = file.getName();
+        if(!name.endsWith(".wdl") && !name.endsWith(".dtc")) return null;
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            if(access.length() > Integer.MAX_VALUE) return null; //one mapping per file
+            MappedByteBuffer buffer = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, access.length());
+            if(buffer.getInt(0) != TablebaseFile.MAGIC || buffer.get(4) != TablebaseFile.VERSION) return null;
+            Table table = new Table();
+            table.kind = buffer.get(5);
+            table.index = new TablebaseIndex(new Material(buffer.get(6), buffer.get(7), buffer.get(8), buffer.get(9)));
+            if(buffer.getLong(10) != table.index.size()) return null;
+            table.blockEntries = buffer.getInt(18);
+            table.blockCount = buffer.getInt(22);
+            table.buffer = buffer;
+            return table;
+        } finally {
+            access.close(); //mapping stays valid after the file is closed
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.krystian.checkers.engine.time;
+
+import java.nio.ByteBuffer;
+
+public class GameClock { //time of both sides in milliseconds; "now" is passed in so any monotonic clock can be used
+
+    public final static int STATE_SIZE = 4 * 8 + 2 * 4 + 1; //base, increment, both times, both move counts, flags
+    private final static int WHITE_FLAGGED = 1, BROWN_FLAGGED = 2, STARTED = 4, BROWN_TO_MOVE = 8;
+
+    private final long base;
+    private final long increment; //added after every move - Fischer; 0 is sudden death
+    private final long[] remaining = new long[2]; //0 - white, 1 - brown
+    private final boolean[] flagged = new boolean[2];
+    private final int[] moves = new int[2];
+    private int running = -1; //side whose time is going, -1 before the start and while paused
+    private boolean started;
+    private int toMove;
+    private long since; //when the running side's time started to go
+
+    public GameClock(long base, long increment) {
+        this.base = base;
+        this.increment = increment;
+        remaining[0] = remaining[1] = base;
+    }
+
+    public static GameClock suddenDeath(long base) { return new GameClock(base, 0); }
+    public static GameClock fischer(long base, long increment) { return new GameClock(base, increment); }
+
+    public long getBase() { return base; }
+    public long getIncrement() { return increment; }
+    public int getMoves(boolean white) { return moves[side(white)]; }
+    public boolean isRunning() { return running >= 0; }
+    public boolean isStarted() { return started; }
+
+    public void start(boolean whiteToMove, long now) {
+        toMove = side(whiteToMove);
+        running = toMove;
+        started = true;
+        since = now;
+    }
+
+    public void press(long now) { //side to move has finished its move - the other one's time goes
+        update(now);
+        if(!flagged[toMove]) remaining[toMove] += increment;
+        moves[toMove]++;
+        toMove = 1 - toMove;
+        if(running >= 0) running = toMove;
+    }
+
+    public void pause(long now) { //app in background - nobody's time goes
+        update(now);
+        running = -1;
+    }
+
+    public void resume(long now) {
+        if(!started) return;
+        running = toMove;
+        since = now;
+    }
+
+    public long getRemaining(boolean white, long now) { //never below 0
+        int side = side(white);
+        long time = remaining[side] - (side == running ? now - since : 0);
+        return Math.max(0, time);
+    }
+
+    public boolean isFlagged(boolean white, long now) {
+        return flagged[side(white)] || getRemaining(white, now) == 0;
+    }
+
+    private void update(long now) {
+        if(running < 0) return;
+        remaining[running] -= now - since;
+        if(remaining[running] <= 0) {
+            remaining[running] = 0;
+            flagged[running] = true; //lost on time - an increment can't save it any more
+        }
+        since = now;
+    }
+
+    public void write(ByteBuffer out, long now) { //times as they are now - read() gives a paused clock
+        update(now);
+        out.putLong(base).putLong(increment).putLong(remaining[0]).putLong(remaining[1]);
+        out.putInt(moves[0]).putInt(moves[1]);
+        out.put((byte) ((flagged[0] ? WHITE_FLAGGED : 0) | (flagged[1] ? BROWN_FLAGGED : 0)
+                | (started ? STARTED : 0) | (toMove == 1 ? BROWN_TO_MOVE : 0)));
+    }
+
+    public static GameClock read(ByteBuffer in) { //resume() starts it again
+        GameClock clock = new GameClock(in.getLong(), in.getLong());
+        clock.remaining[0] = in.getLong();
+        clock.remaining[1] = in.getLong();
+        clock.moves[0] = in.getInt();
+        clock.moves[1] = in.getInt();
+        int flags = in.get();
+        clock.flagged[0] = (flags & WHITE_FLAGGED) != 0;
+        clock.flagged[1] = (flags & BROWN_FLAGGED) != 0;
+        clock.started = (flags & STARTED) != 0;
+        clock.toMove = (flags & BROWN_TO_MOVE) != 0 ? 1 : 0;
+        return clock;
+    }
+
+    private static int side(boolean white) { return white ? 0 : 1; }
+}
@@ -0,0 +1,36 @@
+package com.krystian.checkers.engine.time;
+
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.SearchLimits;
+
+public class TimeManager { //how much of the clock one move may use; Search itself stretches it when the best move keeps changing
+
+    public final static int OPENING_MOVES_TO_GO = 35; //own moves still expected with a full board
+    public final static int ENDGAME_MOVES_TO_GO = 12;
+    public final static int OPENING_PIECES = 40;
+    public final static int GAME_MOVES = 50; //own moves of a usual game - a long one is closer to its end whatever is left on the board
+    public final static long MIN_RESERVE = 200; //milliseconds never planned for - touch and drawing take time too
+    public final static int RESERVE_SHARE = 20; //1/20 of what's left is kept as well
+    public final static int HARD_FACTOR = 4; //hard limit is this many soft limits...
+    public final static int HARD_SHARE = 4; //...but never more than 1/4 of the time left
+    public final static long MIN_TIME = 10;
+
+    public SearchLimits allocate(SearchLimits base, long remaining, long increment, Position position) {
+        long reserve = Math.max(MIN_RESERVE, remaining / RESERVE_SHARE);
+        long usable = Math.max(0, remaining - reserve);
+        int pieces = Math.min(position.getPieceCount(), OPENING_PIECES);
+        int movesToGo = ENDGAME_MOVES_TO_GO + (OPENING_MOVES_TO_GO - ENDGAME_MOVES_TO_GO) * pieces / OPENING_PIECES;
+        int played = position.getPly() / 2; //own moves so far; a position without history counts as a new game
+        movesToGo = Math.min(movesToGo, Math.max(ENDGAME_MOVES_TO_GO, GAME_MOVES - played));
+
+        long soft = usable / movesToGo + increment * 3 / 4; //most of the increment comes back every move
+        long hard = Math.min(soft * HARD_FACTOR, usable / HARD_SHARE + increment);
+        hard = Math.max(MIN_TIME, Math.min(hard, usable));
+        soft = Math.max(MIN_TIME, Math.min(soft, hard));
+
+        SearchLimits limits = new SearchLimits(base); //depth, nodes and multi-PV of the level stay
+        if(base.getSoftTime() == 0 || base.getSoftTime() > soft) limits.softTime(soft);
+        if(base.getHardTime() == 0 || base.getHardTime() > hard) limits.hardTime(hard);
+        return limits;
+    }
+}
@@ -0,0 +1,61 @@
+package com.krystian.checkers.engine.tournament;
+
+import com.krystian.checkers.engine.search.Evaluator;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+import com.krystian.checkers.engine.search.TranspositionTable;
+import com.krystian.checkers.engine.tablebase.TablebaseProber;
+
+import java.io.File;
+import java.io.IOException;
+
+public class EngineConfig { //one side of a match, e.g. "name=new,depth=20,time=100,king=320,tablebases=tb"
+
+    private String name;
+    private int depth = 8;
+    private long nodes; //0 - no limit
+    private long time; //milliseconds per move, 0 - no limit
+    private long softTime; //no new depth after that, 0 - half of time
+    private int hashLog2 = 18;
+    private int man = Evaluator.MAN;
+    private int king = Evaluator.KING;
+    private int advance = Evaluator.ADVANCE;
+    private int centre = Evaluator.CENTRE;
+    private TablebaseProber tablebases; //shared by every game - probing is synchronized
+
+    public static EngineConfig parse(String text) throws IOException {
+        EngineConfig config = new EngineConfig();
+        config.name = text;
+        for(String option : text.split(",")) {
+            String[] pair = option.split("=", 2);
+            if(pair.length != 2) throw new IllegalArgumentException("Expected key=value: " + option);
+            String key = pair[0].trim();
+            String value = pair[1].trim();
+            if(key.equals("name")) config.name = value;
+            else if(key.equals("depth")) config.depth = Integer.parseInt(value);
+            else if(key.equals("nodes")) config.nodes = Long.parseLong(value);
+            else if(key.equals("time")) config.time = Long.parseLong(value);
+            else if(key.equals("soft")) config.softTime = Long.parseLong(value);
+            else if(key.equals("hash")) config.hashLog2 = Integer.parseInt(value);
+            else if(key.equals("man")) config.man = Integer.parseInt(value);
+            else if(key.equals("king")) config.king = Integer.parseInt(value);
+            else if(key.equals("advance")) config.advance = Integer.parseInt(value);
+            else if(key.equals("centre")) config.centre = Integer.parseInt(value);
+            else if(key.equals("tablebases")) config.tablebases = new TablebaseProber(new File(value));
+            else throw new IllegalArgumentException("Unknown option: " + key);
+        }
+        return config;
+    }
+
+    public String getName() { return name; }
+
+    public SearchLimits getLimits() {
+        return new SearchLimits().depth(depth).nodes(nodes).hardTime(time).softTime(softTime > 0 ? softTime : time / 2);
+    }
+
+    public Search createSearch() { //one per game and side - searches keep state
+        Search search = new Search(new TranspositionTable(hashLog2), new Evaluator(man, king, advance, centre));
+        search.setTablebases(tablebases);
+        return search;
+    }
+}
@@ -0,0 +1,52 @@
+package com.krystian.checkers.engine.tournament;
+
+public class Sprt { //sequential probability ratio test: is the first engine elo1 better rather than elo0?
+
+    public final static int CONTINUE = 0;
+    public final static int ACCEPT_H1 = 1; //first engine is better by elo1
+    public final static int ACCEPT_H0 = -1; //it's not better than by elo0
+
+    private final double elo0, elo1;
+    private final double lowerBound, upperBound;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getLowerBound() { return lowerBound; }
+    public double getUpperBound() { return upperBound; }
+
+    public double llr(int wins, int draws, int losses) { //normal approximation of the trinomial log-likelihood ratio
+        int games = wins + draws + losses;
+        if(games == 0) return 0;
+        double score = (wins + 0.5 * draws) / games;
+        double variance = (wins * sq(1 - score) + draws * sq(0.5 - score) + losses * sq(score)) / games;
+        if(variance == 0) return 0; //every game ended the same - nothing to estimate from yet
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return (s1 - s0) * (2 * score - s0 - s1) / (2 * variance / games);
+    }
+
+    public int status(int wins, int draws, int losses) {
+        double llr = llr(wins, draws, losses);
+        if(llr >= upperBound) return ACCEPT_H1;
+        if(llr <= lowerBound) return ACCEPT_H0;
+        return CONTINUE;
+    }
+
+    public static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public static double elo(double score) { //difference that gives this score
+        if(score <= 0 || score >= 1) return score <= 0 ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+}
@@ -0,0 +1,214 @@
+package com.krystian.checkers.engine.tournament;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Pdn;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.Search;
+import com.krystian.checkers.engine.search.SearchLimits;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Tournament { //engine against engine: java ... Tournament --first depth=8 --second depth=6 --games 1000
+
+    public final static int DEFAULT_MAX_PLIES = 300; //longer games are adjudicated a draw
+
+    private final EngineConfig first, second;
+    private final List<long[]> openings;
+    private final int games, threads, maxPlies;
+    private final Sprt sprt; //null - all games are played
+    private final Writer pdn; //null - games aren't saved
+    private final PrintStream log;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private int wins, draws, losses; //first engine's results
+    private int played;
+
+    public Tournament(EngineConfig first, EngineConfig second, List<long[]> openings, int games, int threads,
+                      int maxPlies, Sprt sprt, Writer pdn, PrintStream log) {
+        this.first = first;
+        this.second = second;
+        this.openings = openings;
+        this.games = games;
+        this.threads = threads;
+        this.maxPlies = maxPlies;
+        this.sprt = sprt;
+        this.pdn = pdn;
+        this.log = log;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EngineConfig first = null, second = null;
+        File openingFile = null, pdnFile = null;
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors(); //one game per core
+        int maxPlies = DEFAULT_MAX_PLIES;
+        Sprt sprt = null;
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("--first")) first = EngineConfig.parse(args[++i]);
+            else if(args[i].equals("--second")) second = EngineConfig.parse(args[++i]);
+            else if(args[i].equals("--openings")) openingFile = new File(args[++i]);
+            else if(args[i].equals("--games")) games = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--max-plies")) maxPlies = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--pdn")) pdnFile = new File(args[++i]);
+            else if(args[i].equals("--sprt")) { //elo0,elo1[,alpha,beta]
+                String[] values = args[++i].split(",");
+                sprt = new Sprt(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                        values.length > 2 ? Double.parseDouble(values[2]) : 0.05,
+                        values.length > 3 ? Double.parseDouble(values[3]) : 0.05);
+            }
+            else {
+                first = null;
+                break;
+            }
+        }
+        if(first == null || second == null) {
+            System.err.println("Usage: Tournament --first config --second config [--openings file] [--games n] "
+                    + "[--threads n] [--max-plies n] [--pdn file] [--sprt elo0,elo1[,alpha,beta]]\n"
+                    + "config: name=x,depth=n,nodes=n,time=ms,soft=ms,hash=log2,man=n,king=n,advance=n,centre=n,tablebases=dir");
+            System.exit(1);
+        }
+
+        List<long[]> openings = openingFile != null ? readOpenings(openingFile) : new ArrayList<long[]>();
+        if(openings.isEmpty()) openings.add(new long[0]); //only the initial position - games will repeat a lot
+        Writer pdn = pdnFile != null ? new OutputStreamWriter(new FileOutputStream(pdnFile), "UTF-8") : null;
+        try {
+            new Tournament(first, second, openings, games, threads, maxPlies, sprt, pdn, System.out).run();
+        } finally {
+            if(pdn != null) pdn.close();
+        }
+    }
+
+    public static List<long[]> readOpenings(File file) throws IOException { //one per line, as games for OpeningBookBuilder
+        List<long[]> openings = new ArrayList<>();
+        MoveGenerator generator = new MoveGenerator();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while((line = in.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("[") || line.startsWith("#")) continue;
+                Position position = Position.initial();
+                List<Long> moves = new ArrayList<>();
+                for(String token : line.split("\\s+")) {
+                    if(token.endsWith(".") || Pdn.parseResult(token) != Integer.MIN_VALUE) continue;
+                    long move = generator.parse(position, token);
+                    if(move == Move.NONE) throw new IOException("Illegal move " + token + " in opening: " + line);
+                    position.makeMove(move);
+                    moves.add(move);
+                }
+                long[] opening = new long[moves.size()];
+                for(int i=0; i<opening.length; i++) opening[i] = moves.get(i);
+                openings.add(opening);
+            }
+        } finally {
+            in.close();
+        }
+        return openings;
+    }
+
+    public void run() throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(int g=0; g<games; g++) {
+                final long[] opening = openings.get((g / 2) % openings.size()); //each opening twice, with colours swapped
+                final boolean firstIsWhite = g % 2 == 0;
+                final int number = g + 1;
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        if(!stopped.get()) playGame(number, opening, firstIsWhite);
+                        return null;
+                    }
+                }));
+            }
+            for(Future<?> result : results) result.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        log.println(String.format(Locale.US, "Finished: %s in %.0f s", summary(),
+                (System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    private void playGame(int number, long[] opening, boolean firstIsWhite) throws IOException {
+        Search white = (firstIsWhite ? first : second).createSearch();
+        Search brown = (firstIsWhite ? second : first).createSearch();
+        SearchLimits whiteLimits = (firstIsWhite ? first : second).getLimits();
+        SearchLimits brownLimits = (firstIsWhite ? second : first).getLimits();
+        long[] moves = new long[Math.max(maxPlies, opening.length) + 1];
+        Position position = Position.initial();
+        int count = 0;
+        for(long move : opening) {
+            position.makeMove(move);
+            moves[count++] = move;
+        }
+
+        int result;
+        while(true) {
+            if(position.isDrawByMoves() || count >= maxPlies) {
+                result = Pdn.DRAW;
+                break;
+            }
+            boolean whiteToMove = position.getWhiteToMove();
+            long move = (whiteToMove ? white : brown).findBestMove(position, whiteToMove ? whiteLimits : brownLimits);
+            if(move == Move.NONE) { //no pawns or all blocked
+                result = whiteToMove ? Pdn.BROWN_WON : Pdn.WHITE_WON;
+                break;
+            }
+            position.makeMove(move);
+            moves[count++] = move;
+        }
+        record(number, firstIsWhite, moves, count, result);
+    }
+
+    private synchronized void record(int number, boolean firstIsWhite, long[] moves, int count, int result)
+            throws IOException {
+        int own = firstIsWhite ? result : -result;
+        if(own > 0) wins++;
+        else if(own < 0) losses++;
+        else draws++;
+        played++;
+        if(pdn != null) {
+            String white = firstIsWhite ? first.getName() : second.getName();
+            String brown = firstIsWhite ? second.getName() : first.getName();
+            Pdn.write(pdn, "Self-play game " + number, white, brown, moves, count, result);
+            pdn.flush();
+        }
+        log.println("Game " + number + ": " + (firstIsWhite ? "first" : "second") + " white, "
+                + Pdn.result(result) + " | " + summary());
+        if(sprt != null && !stopped.get() && sprt.status(wins, draws, losses) != Sprt.CONTINUE) {
+            stopped.set(true); //games still running are finished, the rest won't start
+            log.println(sprt.status(wins, draws, losses) == Sprt.ACCEPT_H1
+                    ? "SPRT: first engine is stronger (H1 accepted)" : "SPRT: first engine isn't stronger (H0 accepted)");
+        }
+    }
+
+    private String summary() {
+        double score = played > 0 ? (wins + 0.5 * draws) / played : 0.5;
+        String text = String.format(Locale.US, "+%d =%d -%d of %d, score %.1f%%, elo %+.1f",
+                wins, draws, losses, played, 100 * score, Sprt.elo(score));
+        if(sprt != null)
+            text += String.format(Locale.US, ", LLR %.2f [%.2f, %.2f]", sprt.llr(wins, draws, losses),
+                    sprt.getLowerBound(), sprt.getUpperBound());
+        return text;
+    }
+}
@@ -0,0 +1,88 @@
+package com.krystian.checkers.engine;
+
+import com.krystian.checkers.engine.time.GameClock;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GameRecordTest {
+
+    @Test
+    public void randomGame_readsBackTheSame() throws Exception {
+        MoveGenerator generator = new MoveGenerator();
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        Random random = new Random(7);
+        Position position = Position.initial();
+        GameRecord record = GameRecord.initial();
+        for(int ply=0; ply<200 && !position.isDrawByMoves(); ply++) {
+            int count = generator.generate(position, moves);
+            if(count == 0) break;
+            long move = moves[random.nextInt(count)];
+            record.add(move);
+            position.makeMove(move);
+        }
+        record.setResult(Pdn.DRAW);
+
+        byte[] data = record.toBytes();
+        assertEquals(GameRecord.HEADER_SIZE + record.getMoveCount(), data.length); //one byte per ply
+        GameRecord read = GameRecord.fromBytes(data);
+        assertEquals(record.getMoveCount(), read.getMoveCount());
+        assertEquals(Pdn.DRAW, read.getResult());
+        for(int i=0; i<record.getMoveCount(); i++) assertEquals(record.getMove(i), read.getMove(i));
+        assertEquals(position.getHash(), read.positionAt(read.getMoveCount()).getHash());
+    }
+
+    @Test
+    public void notation_isConverted() throws Exception {
+        GameRecord record = GameRecord.fromNotation("32-28#37-32#", "17-21#");
+        assertEquals(3, record.getMoveCount());
+        assertEquals(GameRecord.UNFINISHED, record.getResult());
+        assertEquals(3, GameRecord.fromBytes(record.toBytes()).getMoveCount());
+    }
+
+    @Test
+    public void keyframes_giveEveryPly() throws Exception {
+        GameRecord record = GameRecord.fromNotation("32-28#37-32#41-37#", "17-21#21-26#");
+        KeyframeIndex index = new KeyframeIndex(record, 2);
+        for(int ply=0; ply<=record.getMoveCount(); ply++)
+            assertTrue(index.positionAt(ply).sameBoard(record.positionAt(ply)));
+        assertEquals("37-32", index.getNotation(2));
+        assertTrue(index.whiteMoves(2));
+        assertFalse(index.whiteMoves(3));
+    }
+
+    @Test
+    public void truncate_goesBackToEarlierPly() throws Exception {
+        GameRecord record = GameRecord.fromNotation("32-28#37-32#", "17-21#21-26#");
+        Position before = record.positionAt(2);
+        record.truncate(2);
+        assertEquals(2, record.getMoveCount());
+        assertTrue(record.positionAt(2).sameBoard(before));
+        assertEquals(2, GameRecord.fromBytes(record.toBytes()).getMoveCount());
+        record.truncate(5); //never longer than it was
+        assertEquals(2, record.getMoveCount());
+    }
+
+    @Test
+    public void snapshot_keepsMovesAndClock() throws Exception {
+        GameClock clock = GameClock.fischer(60000, 2000);
+        clock.start(true, 0);
+        clock.press(5000);
+        GameRecord record = GameRecord.fromNotation("32-28#", "");
+        byte[] data = new GameSnapshot(record, clock).toBytes(8000); //brown used 3 s
+        assertTrue(data.length < 100);
+
+        GameSnapshot read = GameSnapshot.fromBytes(data);
+        assertEquals(1, read.getRecord().getMoveCount());
+        assertEquals(record.getMove(0), read.getRecord().getMove(0));
+        GameClock restored = read.getClock();
+        assertFalse(restored.isRunning()); //paused until resume()
+        assertEquals(57000, restored.getRemaining(true, 100000));
+        restored.resume(100000);
+        assertEquals(56000, restored.getRemaining(false, 101000)); //brown's time goes on
+        assertNull(GameSnapshot.fromBytes(new GameSnapshot(record, null).toBytes(0)).getClock());
+    }
+}
@@ -0,0 +1,49 @@
+package com.krystian.checkers.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveGeneratorTest {
+
+    private final MoveGenerator generator = new MoveGenerator();
+
+    private long perft(Position position, int depth) {
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = generator.generate(position, moves);
+        if(depth == 1) return count;
+        long nodes = 0;
+        for(int i=0; i<count; i++) {
+            long hash = position.getHash();
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1);
+            position.unmakeMove();
+            assertEquals(hash, position.getHash());
+        }
+        return nodes;
+    }
+
+    @Test
+    public void perft_fromInitialPosition() throws Exception {
+        Position position = Position.initial();
+        assertEquals(9, perft(position, 1));
+        assertEquals(81, perft(position, 2));
+        assertEquals(658, perft(position, 3));
+        assertEquals(4265, perft(position, 4));
+        assertEquals(27117, perft(position, 5));
+    }
+
+    @Test
+    public void longestTake_isMandatory() throws Exception {
+        int[] tiles = new int[Board.SQUARES];
+        tiles[Board.index(32)] = 1; //white pawn can take 27 only, or 28 and then 19
+        tiles[Board.index(27)] = -1;
+        tiles[Board.index(28)] = -1;
+        tiles[Board.index(19)] = -1;
+        Position position = Position.fromTiles(tiles, true);
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        assertEquals(1, generator.generate(position, moves));
+        assertEquals(2, Move.captureCount(moves[0]));
+        assertEquals("32x23x14", MoveGenerator.notation(position, moves[0]));
+    }
+}
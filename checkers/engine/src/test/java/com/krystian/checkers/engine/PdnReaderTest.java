@@ -0,0 +1,62 @@
+package com.krystian.checkers.engine;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PdnReaderTest {
+
+    @Test
+    public void writtenGames_readBackTheSame() throws Exception {
+        MoveGenerator generator = new MoveGenerator();
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        Random random = new Random(11);
+        StringBuilder pdn = new StringBuilder();
+        GameRecord[] games = new GameRecord[3];
+        for(int game=0; game<games.length; game++) {
+            Position start = game == 2 ? Pdn.parseFen("B:W31-35,K46:B16-20") : Position.initial();
+            GameRecord record = new GameRecord(start);
+            Position position = record.getStart();
+            for(int ply=0; ply<120 && !position.isDrawByMoves(); ply++) {
+                int count = generator.generate(position, moves);
+                if(count == 0) break;
+                long move = moves[random.nextInt(count)];
+                record.add(move);
+                position.makeMove(move);
+            }
+            record.setResult(game == 0 ? Pdn.DRAW : game == 1 ? Pdn.WHITE_WON : GameRecord.UNFINISHED);
+            Pdn.write(pdn, "Test " + game, "A", "B", record);
+            games[game] = record;
+        }
+
+        PdnReader reader = new PdnReader(new StringReader(pdn.toString()));
+        for(GameRecord expected : games) {
+            GameRecord read = reader.next();
+            assertNotNull(read);
+            assertEquals(expected.getResult(), read.getResult());
+            assertEquals(expected.getMoveCount(), read.getMoveCount());
+            assertTrue(expected.getStart().sameBoard(read.getStart()));
+            for(int ply=0; ply<expected.getMoveCount(); ply++) assertEquals(expected.getMove(ply), read.getMove(ply));
+        }
+        assertNull(reader.next());
+        assertEquals(0, reader.getSkipped());
+    }
+
+    @Test
+    public void commentsAndVariations_areSkipped() throws Exception {
+        String pdn = "[White \"x\"]\n[Result \"0-2\"]\n1. 32-28 {good} 19-23 (1... 18-23 2. 38-32) 2. 28x19 14x23 0-2\n\n"
+                + "[GameType \"21\"]\n1. 11-15 *\n\n" //another game type
+                + "1. 32-28 32-27 2-0\n" //illegal second move
+                + "{stray comment}\n";
+        PdnReader reader = new PdnReader(new StringReader(pdn));
+        GameRecord record = reader.next();
+        assertEquals(4, record.getMoveCount());
+        assertEquals(Pdn.BROWN_WON, record.getResult());
+        assertEquals("x", reader.getTag("White"));
+        assertNull(reader.next());
+        assertEquals(2, reader.getSkipped());
+    }
+}
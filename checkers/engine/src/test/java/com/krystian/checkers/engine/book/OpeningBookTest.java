@@ -0,0 +1,79 @@
+package com.krystian.checkers.engine.book;
+
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+
+    @Test
+    public void builtBook_givesOnlyMovesFromGames() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4);
+        assertTrue(builder.addGame(new String[]{"32-28", "19-23", "28x19", "14x23"}, OpeningBookBuilder.WHITE_WON));
+        assertTrue(builder.addGame(new String[]{"32-28", "17-21"}, OpeningBookBuilder.DRAW));
+        assertTrue(builder.addGame(new String[]{"34-30", "20-25"}, OpeningBookBuilder.BROWN_WON));
+        assertFalse(builder.addGame(new String[]{"32-22"}, OpeningBookBuilder.DRAW)); //not a move
+        MoveGenerator generator = new MoveGenerator();
+        Position other = Position.initial();
+        other.makeMove(generator.parse(other, "34-30"));
+        assertFalse(builder.addGame(new long[]{generator.parse(other, "20-25")}, 1, OpeningBookBuilder.DRAW)); //brown's move first
+
+        File file = File.createTempFile("book", ".bin");
+        try {
+            assertEquals(7, builder.write(file, 1));
+            OpeningBook book = new OpeningBook(file);
+            assertEquals(7, book.getRecordCount());
+
+            Position position = Position.initial();
+            long[] moves = new long[OpeningBook.MAX_BOOK_MOVES];
+            int[] weights = new int[OpeningBook.MAX_BOOK_MOVES];
+            assertEquals(2, book.find(position, moves, weights, 1));
+            Random random = new Random(1);
+            for(int i=0; i<20; i++) {
+                String move = Move.toString(book.choose(position, random));
+                assertTrue(move.equals("32-28") || move.equals("34-30"));
+            }
+
+            position.makeMove(new MoveGenerator().parse(position, "32-28"));
+            assertEquals(2, book.find(position, moves, weights, 1)); //19-23 and 17-21
+            assertEquals(Move.NONE, book.choose(Position.fromTiles(new int[50], true), random)); //not in the book
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void mergedGame_addsToLoadedBook() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2);
+        builder.addGame(new String[]{"32-28", "19-23"}, OpeningBookBuilder.WHITE_WON);
+        builder.setStamp(1);
+        File file = File.createTempFile("book", ".bin");
+        try {
+            builder.write(file, 1);
+            OpeningBookBuilder merged = new OpeningBookBuilder(2);
+            merged.load(new OpeningBook(file));
+            assertEquals(1, merged.getStamp());
+            merged.addGame(new String[]{"32-28", "17-21"}, OpeningBookBuilder.DRAW);
+            merged.setStamp(2);
+            assertEquals(3, merged.write(file, 1));
+
+            OpeningBook book = new OpeningBook(file);
+            assertEquals(2, book.getStamp());
+            Position position = Position.initial();
+            long[] moves = new long[OpeningBook.MAX_BOOK_MOVES];
+            int[] weights = new int[OpeningBook.MAX_BOOK_MOVES];
+            assertEquals(1, book.find(position, moves, weights, 2)); //32-28 played in both games
+            assertEquals(1 + 2 + 1, weights[0]); //a win and a draw for white
+            assertEquals(0, book.find(position, moves, weights, 3));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.krystian.checkers.engine.search;
+
+import com.krystian.checkers.engine.Board;
+import com.krystian.checkers.engine.Move;
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchTest {
+
+    @Test
+    public void takingLastPawn_isFoundAsWin() throws Exception {
+        int[] tiles = new int[Board.SQUARES];
+        tiles[Board.index(5)] = 2; //white queen takes the last brown one on 28
+        tiles[Board.index(50)] = 2;
+        tiles[Board.index(28)] = -2;
+        Position position = Position.fromTiles(tiles, true);
+        long hash = position.getHash();
+
+        Search search = new Search(new TranspositionTable(12));
+        long move = search.findBestMove(position, 4);
+        assertTrue(Move.isCapture(move));
+        assertTrue(search.getScore() >= Search.WIN - Search.MAX_PLY);
+        assertEquals(hash, position.getHash()); //root is left as it was
+    }
+
+    @Test
+    public void kingsGoingBack_isRepetition() throws Exception {
+        int[] tiles = new int[Board.SQUARES];
+        tiles[Board.index(46)] = 2;
+        tiles[Board.index(5)] = -2;
+        Position position = Position.fromTiles(tiles, true);
+        MoveGenerator generator = new MoveGenerator();
+        String[] moves = {"46-41", "5-10", "41-46", "10-5"};
+        for(String move : moves) {
+            assertFalse(position.isRepetition());
+            position.makeMove(generator.parse(position, move));
+        }
+        assertTrue(position.isRepetition());
+        assertEquals(4, position.getReversibleMoves());
+        assertFalse(position.isDrawByMoves());
+    }
+
+    @Test
+    public void initialPosition_hasMove() throws Exception {
+        Position position = Position.initial();
+        Search search = new Search(new TranspositionTable(12));
+        long move = search.findBestMove(position, 5);
+        assertNotEquals(Move.NONE, move);
+        assertEquals(5, search.getCompletedDepth());
+
+        SearchStats stats = search.getStats();
+        assertEquals(5, stats.getDepth());
+        assertEquals(move, stats.getBestMove());
+        assertEquals(search.getNodes(), stats.getNodes());
+        assertTrue(stats.getSelectiveDepth() >= 5);
+        assertTrue(stats.getTableHits() <= stats.getTableProbes());
+        assertTrue(stats.getFirstMoveCutoffs() <= stats.getCutoffs());
+    }
+
+    @Test
+    public void multiPv_givesSortedScores() throws Exception {
+        Search single = new Search(new TranspositionTable(12));
+        long best = single.findBestMove(Position.initial(), 4);
+        Search search = new Search(new TranspositionTable(12));
+        Position root = Position.initial();
+        assertEquals(best, search.findBestMove(root, new SearchLimits().depth(4).multiPv(3)));
+        assertEquals(3, search.getPvCount());
+        assertEquals(single.getScore(), search.getPvScore(0));
+        assertTrue(search.getPvScore(0) >= search.getPvScore(1));
+        assertTrue(search.getPvScore(1) >= search.getPvScore(2));
+
+        long[] line = new long[10];
+        assertTrue(search.getLine(1, line) > 1);
+        assertEquals(search.getPvMove(1), line[0]);
+        assertEquals(0, search.getLine(3, line));
+        assertEquals(Position.initial().getHash(), root.getHash());
+    }
+
+    @Test
+    public void nodeLimit_givesSameMoveEveryTime() throws Exception {
+        SearchLimits limits = new SearchLimits().nodes(5000);
+        long first = new Search(new TranspositionTable(12)).findBestMove(Position.initial(), limits);
+        Search search = new Search(new TranspositionTable(12));
+        assertEquals(first, search.findBestMove(Position.initial(), limits));
+        assertTrue(search.wasStopped());
+        assertTrue(search.getNodes() <= 5000 + 1024);
+    }
+}
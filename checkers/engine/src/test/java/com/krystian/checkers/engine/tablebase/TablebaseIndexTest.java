@@ -0,0 +1,27 @@
+package com.krystian.checkers.engine.tablebase;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TablebaseIndexTest {
+
+    private void checkRoundTrip(Material material) {
+        TablebaseIndex index = new TablebaseIndex(material);
+        long[] masks = new long[4];
+        for(long i=0; i<index.size(); i++) {
+            index.position(i, masks);
+            assertEquals(0, masks[0] & masks[1] | masks[0] & masks[2] | masks[0] & masks[3]
+                    | masks[1] & masks[2] | masks[1] & masks[3] | masks[2] & masks[3]);
+            assertEquals(i, index.index(masks[0], masks[1], masks[2], masks[3]));
+        }
+    }
+
+    @Test
+    public void index_isPerfect() throws Exception {
+        checkRoundTrip(new Material(0, 2, 0, 1));
+        checkRoundTrip(new Material(1, 1, 1, 0));
+        checkRoundTrip(new Material(2, 0, 1, 0));
+        assertEquals(50 * 49 / 2 * 48, new TablebaseIndex(new Material(0, 2, 0, 1)).size());
+    }
+}
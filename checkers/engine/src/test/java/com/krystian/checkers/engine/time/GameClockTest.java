@@ -0,0 +1,59 @@
+package com.krystian.checkers.engine.time;
+
+import com.krystian.checkers.engine.MoveGenerator;
+import com.krystian.checkers.engine.Position;
+import com.krystian.checkers.engine.search.SearchLimits;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameClockTest {
+
+    @Test
+    public void fischer_addsIncrementAfterMove() throws Exception {
+        GameClock clock = GameClock.fischer(60000, 2000);
+        clock.start(true, 0);
+        clock.press(5000); //white used 5 s
+        assertEquals(57000, clock.getRemaining(true, 5000));
+        assertEquals(60000, clock.getRemaining(false, 5000));
+        assertEquals(59000, clock.getRemaining(false, 6000)); //brown's time goes now
+        assertEquals(1, clock.getMoves(true));
+    }
+
+    @Test
+    public void flaggedSide_getsNoIncrement() throws Exception {
+        GameClock clock = GameClock.fischer(1000, 2000);
+        clock.start(true, 0);
+        assertTrue(clock.isFlagged(true, 1500));
+        clock.press(1500);
+        assertTrue(clock.isFlagged(true, 1500));
+        assertEquals(0, clock.getRemaining(true, 1500));
+    }
+
+    @Test
+    public void allocation_leavesReserve() throws Exception {
+        TimeManager manager = new TimeManager();
+        SearchLimits limits = manager.allocate(new SearchLimits().depth(10), 10000, 0, Position.initial());
+        assertEquals(10, limits.getDepth());
+        assertTrue(limits.getSoftTime() > 0 && limits.getSoftTime() <= limits.getHardTime());
+        assertTrue(limits.getHardTime() <= 10000 - TimeManager.MIN_RESERVE);
+        assertTrue(manager.allocate(new SearchLimits(), 100, 0, Position.initial()).getHardTime() <= 100);
+    }
+
+    @Test
+    public void allocation_growsWithMovesPlayed() throws Exception {
+        TimeManager manager = new TimeManager();
+        Position played = Position.initial();
+        MoveGenerator generator = new MoveGenerator();
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        for(int ply=0; ply<60; ply++) { //any legal line - 30 moves each
+            if(generator.generate(played, moves) == 0) break;
+            played.makeMove(moves[0]);
+        }
+        Position board = new Position(played); //same pieces, no moves played
+        long early = manager.allocate(new SearchLimits(), 60000, 0, board).getSoftTime();
+        long late = manager.allocate(new SearchLimits(), 60000, 0, played).getSoftTime();
+        assertTrue(late > early); //fewer moves expected after 30 of them
+    }
+}
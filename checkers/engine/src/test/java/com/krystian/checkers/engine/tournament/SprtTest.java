@@ -0,0 +1,45 @@
+package com.krystian.checkers.engine.tournament;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SprtTest {
+
+    @Test
+    public void bounds_followAlphaAndBeta() throws Exception {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(-2.944, sprt.getLowerBound(), 0.001); //ln(0.05 / 0.95)
+        assertEquals(2.944, sprt.getUpperBound(), 0.001);
+    }
+
+    @Test
+    public void clearWinner_isAccepted() throws Exception {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.ACCEPT_H1, sprt.status(600, 1000, 400)); //about +35 elo
+        assertTrue(sprt.llr(600, 1000, 400) > sprt.getUpperBound());
+    }
+
+    @Test
+    public void equalEngines_areRejected() throws Exception {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.CONTINUE, sprt.status(500, 1000, 500)); //not enough games to tell 0 from 10 elo
+        assertEquals(Sprt.ACCEPT_H0, sprt.status(1500, 3000, 1500));
+        assertEquals(Sprt.ACCEPT_H0, sprt.status(400, 1000, 600)); //worse - rejected even sooner
+    }
+
+    @Test
+    public void fewGames_continue() throws Exception {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.CONTINUE, sprt.status(6, 10, 4));
+        assertEquals(0, sprt.llr(0, 0, 0), 0);
+        assertEquals(0, sprt.llr(0, 20, 0), 0); //all draws - no variance to go on
+    }
+
+    @Test
+    public void elo_isInverseOfExpectedScore() throws Exception {
+        assertEquals(0.5, Sprt.expectedScore(0), 1e-9);
+        assertEquals(100, Sprt.elo(Sprt.expectedScore(100)), 1e-6);
+        assertEquals(Double.POSITIVE_INFINITY, Sprt.elo(1), 0);
+    }
+}